@@ -0,0 +1,44 @@
+package app.nss.webchat.benchmark;
+
+import app.nss.webchat.service.BlockedUserService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockedUserServiceBenchmark {
+
+    private static final long ROOMS = 1_000;
+    private static final long BLOCKED_PER_ROOM = 100;
+
+    private final BlockedUserService blockedUserService = new BlockedUserService();
+
+    @Setup
+    public void setup() {
+        for (long room = 1; room <= ROOMS; room++) {
+            for (long user = 1; user <= BLOCKED_PER_ROOM; user++) {
+                blockedUserService.blockUserForRoom(user, room);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean blockedUser() {
+        return blockedUserService.isUserBlockedForRoom(BLOCKED_PER_ROOM / 2, ROOMS / 2);
+    }
+
+    @Benchmark
+    public boolean notBlockedUser() {
+        return blockedUserService.isUserBlockedForRoom(BLOCKED_PER_ROOM * 2, ROOMS / 2);
+    }
+
+    @Benchmark
+    public boolean roomWithoutBlocks() {
+        return blockedUserService.isUserBlockedForRoom(1L, ROOMS * 2);
+    }
+}
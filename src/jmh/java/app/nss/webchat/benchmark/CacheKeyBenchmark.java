@@ -0,0 +1,87 @@
+package app.nss.webchat.benchmark;
+
+import app.nss.webchat.service.MessageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+    // The key expression used by the @Cacheable methods of the services
+    private static final String KEY_EXPRESSION = "{#root.methodName, #root.args}";
+
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final DefaultParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final SimpleKeyGenerator simpleKeyGenerator = new SimpleKeyGenerator();
+    private Expression keyExpression;
+    private Method method;
+    private Object[] args;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        // Spring caches parsed key expressions per method, so only evaluation is on the hot path
+        keyExpression = parser.parseExpression(KEY_EXPRESSION);
+        method = MessageService.class.getMethod("getSortedMessages", int.class, int.class);
+        args = new Object[]{20, 40};
+    }
+
+    @Benchmark
+    public Object spelKey() {
+        return evaluate();
+    }
+
+    @Benchmark
+    public int spelKeyHashCode() {
+        // Cache lookups hash the key; the args array inside the list hashes by identity
+        return evaluate().hashCode();
+    }
+
+    @Benchmark
+    public Object simpleKey() {
+        return simpleKeyGenerator.generate(null, method, args);
+    }
+
+    @Benchmark
+    public int simpleKeyHashCode() {
+        return simpleKeyGenerator.generate(null, method, args).hashCode();
+    }
+
+    private Object evaluate() {
+        KeyRoot rootObject = new KeyRoot(method, args);
+        MethodBasedEvaluationContext context = new MethodBasedEvaluationContext(
+                rootObject, method, args, parameterNameDiscoverer);
+        return keyExpression.getValue(context);
+    }
+
+    // Mirrors the properties the cache interceptor exposes as #root
+    public static class KeyRoot {
+
+        private final Method method;
+        private final Object[] args;
+
+        public KeyRoot(Method method, Object[] args) {
+            this.method = method;
+            this.args = args;
+        }
+
+        public String getMethodName() {
+            return method.getName();
+        }
+
+        public Object[] getArgs() {
+            return args;
+        }
+    }
+}
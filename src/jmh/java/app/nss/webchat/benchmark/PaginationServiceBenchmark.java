@@ -0,0 +1,46 @@
+package app.nss.webchat.benchmark;
+
+import app.nss.webchat.service.PaginationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaginationServiceBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int size;
+
+    private final PaginationService paginationService = new PaginationService();
+    private List<Long> items;
+
+    @Setup
+    public void setup() {
+        items = new ArrayList<>(size);
+        for (long i = 0; i < size; i++) {
+            items.add(i);
+        }
+    }
+
+    @Benchmark
+    public List<Long> firstPage() {
+        return paginationService.getPaginatedList(items, 20, 0);
+    }
+
+    @Benchmark
+    public List<Long> middlePage() {
+        return paginationService.getPaginatedList(items, 20, size / 2);
+    }
+
+    @Benchmark
+    public List<Long> pastTheEnd() {
+        return paginationService.getPaginatedList(items, 20, size + 1);
+    }
+}
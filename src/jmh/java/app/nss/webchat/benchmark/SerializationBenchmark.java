@@ -0,0 +1,75 @@
+package app.nss.webchat.benchmark;
+
+import app.nss.webchat.entity.ChatRoom;
+import app.nss.webchat.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectWriter messageWriter;
+    private ObjectWriter listWriter;
+    private ObjectWriter chatRoomWriter;
+    private Message message;
+    private List<Message> history;
+    private ChatRoom chatRoom;
+
+    @Setup
+    public void setup() {
+        // Same defaults Spring Boot applies to the MVC ObjectMapper
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        messageWriter = objectMapper.writerFor(Message.class);
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, Message.class));
+        chatRoomWriter = objectMapper.writerFor(ChatRoom.class);
+
+        chatRoom = new ChatRoom();
+        chatRoom.setId(1L);
+        chatRoom.setName("General");
+        chatRoom.setDescription("Room for everything that does not fit elsewhere");
+
+        message = message(1L);
+        history = new ArrayList<>();
+        for (long i = 1; i <= 50; i++) {
+            history.add(message(i));
+        }
+    }
+
+    @Benchmark
+    public String singleMessage() throws JsonProcessingException {
+        return messageWriter.writeValueAsString(message);
+    }
+
+    @Benchmark
+    public byte[] roomHistory() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public String singleChatRoom() throws JsonProcessingException {
+        return chatRoomWriter.writeValueAsString(chatRoom);
+    }
+
+    private Message message(long id) {
+        Message result = new Message();
+        result.setId(id);
+        result.setContent("Message number " + id + " with some ordinary chat content");
+        result.setTimeStamp(LocalDateTime.of(2023, 6, 1, 12, 0).plusMinutes(id));
+        result.setRoom(chatRoom);
+        return result;
+    }
+}
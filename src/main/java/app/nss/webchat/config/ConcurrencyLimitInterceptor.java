@@ -0,0 +1,181 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Limits how many requests are handled at once and rejects the rest with 503 before they queue up. The limit
+// adapts AIMD style: it grows by one while requests finish within the latency target and the limit is in use,
+// and shrinks by the backoff factor when they do not. Lower priorities only get part of the limit, and every
+// endpoint outside the critical ones part of that again, so admin listings are shed before messages and rooms.
+@Slf4j
+@Component
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String PERMIT_ATTRIBUTE = "concurrency-permit";
+    private static final String OVERLOADED_MESSAGE = "Server is overloaded, please try again later.";
+
+    enum Priority {
+        CRITICAL(1.0, 1.0), NORMAL(0.9, 0.5), LOW(0.5, 0.2);
+
+        // Share of the limit all requests up to this priority may use, and one endpoint of it may use
+        private final double totalShare;
+        private final double endpointShare;
+
+        Priority(double totalShare, double endpointShare) {
+            this.totalShare = totalShare;
+            this.endpointShare = endpointShare;
+        }
+    }
+
+    record Permit(String handler, Priority priority, long start) {
+    }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoff;
+    private final Set<String> critical;
+    private final Set<String> low;
+    private final AtomicLong limitBits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, AtomicInteger> endpointInFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public ConcurrencyLimitInterceptor(ObjectProvider<MeterRegistry> meterRegistry,
+                                       @Value("${app.concurrency.enabled:true}") boolean enabled,
+                                       @Value("${app.concurrency.initial-limit:64}") int initialLimit,
+                                       @Value("${app.concurrency.min-limit:8}") int minLimit,
+                                       @Value("${app.concurrency.max-limit:400}") int maxLimit,
+                                       @Value("${app.concurrency.latency-target:PT0.5S}") Duration latencyTarget,
+                                       @Value("${app.concurrency.backoff:0.9}") double backoff,
+                                       @Value("${app.concurrency.critical:}") Set<String> critical,
+                                       @Value("${app.concurrency.low:}") Set<String> low) {
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new); // Web slices run without metrics
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.backoff = backoff;
+        this.critical = critical;
+        this.low = low;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        Gauge.builder("http.concurrency.limit", this, ConcurrencyLimitInterceptor::getLimit)
+                .register(this.meterRegistry);
+        Gauge.builder("http.concurrency.in-flight", inFlight, AtomicInteger::get).register(this.meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull Object handler) {
+        if (!enabled || !(handler instanceof HandlerMethod handlerMethod)
+                || request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            return true; // Async and error dispatches keep the permit of the original request
+        }
+        // Subscriptions stay open for minutes without holding a thread, they would only block the limit
+        if (ResponseBodyEmitter.class.isAssignableFrom(handlerMethod.getMethod().getReturnType())) {
+            return true;
+        }
+        String handlerName = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        Permit permit = tryAcquire(handlerName);
+        if (permit == null) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull Object handler,
+            Exception exception) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            release(permit, response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+    }
+
+    Permit tryAcquire(String handlerName) {
+        Priority priority = critical.contains(handlerName) ? Priority.CRITICAL
+                : low.contains(handlerName) ? Priority.LOW : Priority.NORMAL;
+        double limit = getLimit();
+        AtomicInteger endpoint = endpointInFlight.computeIfAbsent(handlerName, key -> new AtomicInteger());
+        if (inFlight.incrementAndGet() > Math.max(1, limit * priority.totalShare)) {
+            inFlight.decrementAndGet();
+            reject(handlerName, priority);
+            return null;
+        }
+        if (endpoint.incrementAndGet() > Math.max(1, limit * priority.endpointShare)) {
+            endpoint.decrementAndGet();
+            inFlight.decrementAndGet();
+            reject(handlerName, priority);
+            return null;
+        }
+        return new Permit(handlerName, priority, System.nanoTime());
+    }
+
+    // Overloaded downstream parts answer with 503 themselves, which counts as a slow request
+    void release(Permit permit, boolean overloaded) {
+        int current = inFlight.getAndDecrement();
+        endpointInFlight.get(permit.handler()).decrementAndGet();
+        // Low priority requests include long exports, their latency says nothing about overload
+        if (permit.priority() == Priority.LOW) {
+            return;
+        }
+        boolean slow = overloaded || System.nanoTime() - permit.start() > latencyTargetNanos;
+        double previous = Double.longBitsToDouble(limitBits.getAndUpdate(bits -> {
+            double limit = Double.longBitsToDouble(bits);
+            if (slow) {
+                return Double.doubleToLongBits(Math.max(minLimit, limit * backoff));
+            }
+            // Only grow while the limit is actually used, otherwise it would climb without evidence
+            if (current * 2 >= limit) {
+                return Double.doubleToLongBits(Math.min(maxLimit, limit + 1));
+            }
+            return bits;
+        }));
+        if (slow && previous > minLimit && previous * backoff <= minLimit) {
+            log.warn("Concurrency limit reached its minimum of {}, requests are slower than the target.", minLimit);
+        }
+    }
+
+    double getLimit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void reject(String handlerName, Priority priority) {
+        rejectedCounters.computeIfAbsent(handlerName, key ->
+                Counter.builder("http.concurrency.rejected")
+                        .tag("handler", handlerName)
+                        .tag("priority", priority.name().toLowerCase())
+                        .register(meterRegistry)).increment();
+    }
+}
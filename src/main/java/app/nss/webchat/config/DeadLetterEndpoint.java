@@ -0,0 +1,218 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.exception.ApplicationException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Component
+@Endpoint(id = "deadletters")
+public class DeadLetterEndpoint {
+
+    private static final String REPLAY_GROUP = "messagesDltReplayId";
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, MessageEvent> consumerFactory;
+    private final KafkaPublisher kafkaPublisher;
+    private final Duration ackTimeout;
+
+    // The producer gives up on a record after its delivery timeout, so waiting longer for an acknowledgement is no use
+    public DeadLetterEndpoint(ConsumerFactory<String, MessageEvent> consumerFactory, KafkaPublisher kafkaPublisher,
+                              @Value("${app.kafka.producer.delivery-timeout:PT2M}") Duration ackTimeout) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaPublisher = kafkaPublisher;
+        this.ackTimeout = ackTimeout;
+    }
+
+    @ReadOperation
+    public DeadLetterReport deadLetters() {
+        try (Consumer<String, MessageEvent> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            Map<TopicPartition, Long> positions = positions(consumer, partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            long pending = 0;
+            for (TopicPartition partition : partitions) {
+                pending += endOffsets.get(partition) - positions.get(partition);
+            }
+            return new DeadLetterReport(KafkaTopConfig.DEAD_LETTER_TOPIC, pending, 0, 0, null);
+        }
+    }
+
+    // Publishes dead letters back to the messages topic, from where the replay group last stopped up to
+    // the end offsets seen when the replay started. Records that cannot be decoded are skipped. Every polled
+    // batch waits for the broker to acknowledge its records and is committed before the next poll, so a replay
+    // that stops midway, because the publisher is full or a send failed, continues after the last acknowledged
+    // record and only sends the rest again.
+    @WriteOperation
+    public DeadLetterReport replay(@Nullable Integer limit) {
+        int max = limit == null ? Integer.MAX_VALUE : limit;
+        int replayed = 0;
+        int skipped = 0;
+        String error = null;
+        try (Consumer<String, MessageEvent> consumer = createConsumer()) {
+            List<TopicPartition> partitions = partitions(consumer);
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> positions = positions(consumer, partitions);
+            positions.forEach(consumer::seek);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            while (error == null && replayed + skipped < max && !reachedEnd(positions, endOffsets)) {
+                List<Replay> batch = new ArrayList<>();
+                boolean limitReached = false;
+                for (ConsumerRecord<String, MessageEvent> record : consumer.poll(POLL_TIMEOUT)) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (replayed + skipped + batch.size() >= max) {
+                        limitReached = true;
+                        break;
+                    }
+                    if (record.offset() >= endOffsets.get(partition)) {
+                        continue;
+                    }
+                    CompletableFuture<Void> acknowledged = null;
+                    if (record.value() != null) {
+                        try {
+                            acknowledged = kafkaPublisher.publishAcknowledged(KafkaTopConfig.MESSAGES_TOPIC,
+                                    record.key(), record.value());
+                        } catch (ApplicationException e) {
+                            error = e.getMessage();
+                            break;
+                        }
+                    }
+                    batch.add(new Replay(partition, record.offset(), acknowledged));
+                }
+
+                // A partition stops at its first record that was not acknowledged
+                Set<TopicPartition> failed = new HashSet<>();
+                for (Replay replay : batch) {
+                    if (failed.contains(replay.partition())) {
+                        continue;
+                    }
+                    String failure = replay.await(ackTimeout);
+                    if (failure != null) {
+                        failed.add(replay.partition());
+                        error = failure;
+                        continue;
+                    }
+                    if (replay.acknowledged() == null) {
+                        skipped++;
+                    } else {
+                        replayed++;
+                    }
+                    positions.put(replay.partition(), replay.offset() + 1);
+                }
+                if (error == null && !limitReached) {
+                    // Also moves past offset gaps such as transaction markers, which never show up as records
+                    for (TopicPartition partition : partitions) {
+                        positions.put(partition, Math.min(consumer.position(partition), endOffsets.get(partition)));
+                    }
+                }
+                commit(consumer, positions);
+            }
+
+            long pending = 0;
+            for (TopicPartition partition : partitions) {
+                pending += endOffsets.get(partition) - positions.get(partition);
+            }
+            if (error != null) {
+                log.warn("Replay of dead letters stopped after {} records, {} pending: {}", replayed + skipped,
+                        pending, error);
+            }
+            log.info("Replayed {} dead letters, skipped {} undecodable records.", replayed, skipped);
+            return new DeadLetterReport(KafkaTopConfig.DEAD_LETTER_TOPIC, pending, replayed, skipped, error);
+        }
+    }
+
+    private static void commit(Consumer<String, MessageEvent> consumer, Map<TopicPartition, Long> positions) {
+        Map<TopicPartition, OffsetAndMetadata> commit = new HashMap<>();
+        positions.forEach((partition, offset) -> commit.put(partition, new OffsetAndMetadata(offset)));
+        consumer.commitSync(commit);
+    }
+
+    private Consumer<String, MessageEvent> createConsumer() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return consumerFactory.createConsumer(REPLAY_GROUP, null, null, properties);
+    }
+
+    private static List<TopicPartition> partitions(Consumer<String, MessageEvent> consumer) {
+        List<PartitionInfo> infos = consumer.partitionsFor(KafkaTopConfig.DEAD_LETTER_TOPIC);
+        return infos.stream().map(info -> new TopicPartition(info.topic(), info.partition())).toList();
+    }
+
+    // Committed offset of the replay group, or the beginning of the partition if it never replayed
+    private static Map<TopicPartition, Long> positions(Consumer<String, MessageEvent> consumer,
+                                                       List<TopicPartition> partitions) {
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        Map<TopicPartition, Long> beginning = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> positions = new HashMap<>();
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = committed.get(partition);
+            positions.put(partition, offset == null
+                    ? beginning.get(partition)
+                    : Math.max(offset.offset(), beginning.get(partition)));
+        }
+        return positions;
+    }
+
+    private static boolean reachedEnd(Map<TopicPartition, Long> positions, Map<TopicPartition, Long> endOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : endOffsets.entrySet()) {
+            if (positions.get(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public record DeadLetterReport(String topic, long pending, int replayed, int skipped, String error) {
+    }
+
+    // A record handed to the publisher, or a skipped one without an acknowledgement to wait for
+    private record Replay(TopicPartition partition, long offset, CompletableFuture<Void> acknowledged) {
+
+        // The reason the record was not acknowledged, or null once it was
+        String await(Duration timeout) {
+            if (acknowledged == null) {
+                return null;
+            }
+            try {
+                acknowledged.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+                return null;
+            } catch (ExecutionException e) {
+                return "Publishing offset " + offset + " of " + partition + " failed: " + e.getCause().getMessage();
+            } catch (TimeoutException e) {
+                return "Publishing offset " + offset + " of " + partition + " was not acknowledged in time.";
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "Replay was interrupted.";
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package app.nss.webchat.config;
+
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Flyway's default lock on Postgres keeps a transaction open while the migrations run, and the concurrent
+// index builds in V2 wait for every open transaction, so they would wait forever. A session lock does not.
+@Component
+public class FlywayLockCustomizer implements FlywayConfigurationCustomizer {
+
+    public static final String TRANSACTIONAL_LOCK = "flyway.postgresql.transactional.lock";
+
+    @Override
+    public void customize(FluentConfiguration configuration) {
+        configuration.configuration(Map.of(TRANSACTIONAL_LOCK, "false"));
+    }
+}
@@ -1,6 +1,9 @@
 package app.nss.webchat.config;
 
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.event.MessageEventSerializer;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -8,7 +11,9 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -18,21 +23,60 @@ public class KafkaProducerConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootStrapService;
 
+    @Value("${app.kafka.producer.linger:PT0.005S}")
+    private Duration linger;
+
+    @Value("${app.kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${app.kafka.producer.compression:lz4}")
+    private String compression;
+
+    @Value("${app.kafka.producer.idempotence:true}")
+    private boolean idempotence;
+
+    @Value("${app.kafka.producer.max-block:PT0.5S}")
+    private Duration maxBlock;
+
+    @Value("${app.kafka.producer.delivery-timeout:PT2M}")
+    private Duration deliveryTimeout;
+
     public Map<String, Object> producerConfig() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootStrapService);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, MessageEventSerializer.class);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        // Idempotence needs acks=all and at most 5 in-flight requests per connection to keep per-key ordering
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+        props.put(ProducerConfig.ACKS_CONFIG, idempotence ? "all" : "1");
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        // Upper bound on how long send() may stall the publisher thread when the broker is unreachable
+        props.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, maxBlock.toMillis());
+        props.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, (int) deliveryTimeout.toMillis());
         return props;
     }
 
     @Bean
-    public ProducerFactory<String, String> producerFactory() {
+    public ProducerFactory<String, MessageEvent> producerFactory() {
         return new DefaultKafkaProducerFactory<>(producerConfig());
     }
 
     @Bean
-    public KafkaTemplate<String, String> kafkaTemplate(ProducerFactory<String, String> producerFactory) {
+    public KafkaTemplate<String, MessageEvent> kafkaTemplate(ProducerFactory<String, MessageEvent> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
     }
+
+    // Retry and dead-letter topics also receive the raw bytes of records that could not be deserialized
+    @Bean
+    public KafkaTemplate<String, Object> deadLetterKafkaTemplate() {
+        DelegatingByTypeSerializer valueSerializer = new DelegatingByTypeSerializer(Map.of(
+                MessageEvent.class, new MessageEventSerializer(),
+                byte[].class, new ByteArraySerializer()
+        ));
+        return new KafkaTemplate<>(
+                new DefaultKafkaProducerFactory<>(producerConfig(), new StringSerializer(), valueSerializer));
+    }
 }
@@ -1,18 +1,58 @@
 package app.nss.webchat.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
 
 @Configuration
 public class KafkaTopConfig {
 
-    @Bean
-    public NewTopic createTopic() {
-        return TopicBuilder.name("messages").build();
-    }
-}
+    public static final String MESSAGES_TOPIC = "messages";
+    // Retry tiers messages-failed-retry-N and the dead-letter topic are derived from this name by @RetryableTopic
+    public static final String FAILED_TOPIC = "messages-failed";
+    public static final String DEAD_LETTER_TOPIC = "messages-failed-dlt";
 
+    @Value("${app.kafka.messages.partitions:6}")
+    private int partitions;
 
+    @Value("${app.kafka.messages.replicas:1}")
+    private int replicas;
 
+    @Value("${app.kafka.messages.min-insync-replicas:1}")
+    private int minInSyncReplicas;
+
+    // KafkaAdmin adds partitions when the configured count is raised, which moves rooms without draining the
+    // consumers first. The count only applies when the topic is created, the partitions endpoint grows it later.
+    @Bean
+    public NewTopic createTopic(ObjectProvider<KafkaAdmin> kafkaAdmin) {
+        kafkaAdmin.ifAvailable(admin -> admin.setCreateOrModifyTopic(
+                topic -> !topic.name().equals(MESSAGES_TOPIC) || isMissing(admin, topic)));
+        return TopicBuilder.name(MESSAGES_TOPIC)
+                .partitions(partitions)
+                .replicas(replicas)
+                .config(TopicConfig.MIN_IN_SYNC_REPLICAS_CONFIG, String.valueOf(minInSyncReplicas))
+                .build();
+    }
+
+    static boolean isMissing(KafkaAdmin kafkaAdmin, NewTopic topic) {
+        try {
+            kafkaAdmin.describeTopics(topic.name());
+            return false;
+        } catch (KafkaException e) {
+            // Without an answer from the broker the topic is left alone, KafkaAdmin could not create it either
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof UnknownTopicOrPartitionException) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package app.nss.webchat.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    public LatencyEndpoint(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public List<HandlerLatency> latency() {
+        return meterRegistry.find(LoggingInterceptor.LATENCY_METRIC).timers().stream()
+                .map(LatencyEndpoint::summarize)
+                .sorted(Comparator.comparing(HandlerLatency::handler).thenComparing(HandlerLatency::status))
+                .toList();
+    }
+
+    @Scheduled(fixedRateString = "${app.latency.summary-interval:PT1M}",
+            initialDelayString = "${app.latency.summary-interval:PT1M}")
+    public void logSummary() {
+        for (HandlerLatency latency : latency()) {
+            if (latency.count() > 0) {
+                log.info("Latency {} {} - count {} p50 {}ms p99 {}ms p999 {}ms max {}ms",
+                        latency.handler(), latency.status(), latency.count(),
+                        latency.p50Ms(), latency.p99Ms(), latency.p999Ms(), latency.maxMs());
+            }
+        }
+    }
+
+    private static HandlerLatency summarize(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        double p50 = 0;
+        double p99 = 0;
+        double p999 = 0;
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            double millis = percentile.value(TimeUnit.MILLISECONDS);
+            if (percentile.percentile() == 0.5) {
+                p50 = millis;
+            } else if (percentile.percentile() == 0.99) {
+                p99 = millis;
+            } else if (percentile.percentile() == 0.999) {
+                p999 = millis;
+            }
+        }
+        return new HandlerLatency(
+                timer.getId().getTag("handler"),
+                timer.getId().getTag("status"),
+                snapshot.count(),
+                p50,
+                p99,
+                p999,
+                snapshot.max(TimeUnit.MILLISECONDS)
+        );
+    }
+
+    public record HandlerLatency(String handler, String status, long count,
+                                 double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+    }
+}
@@ -1,55 +1,71 @@
 package app.nss.webchat.config;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
-import java.util.UUID;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Slf4j
+@Slf4j(topic = "access")
 @Component
-public class LoggingInterceptor implements HandlerInterceptor {
+public class LoggingInterceptor implements AsyncHandlerInterceptor {
 
-    @Override
-    public boolean preHandle(
-            @NonNull HttpServletRequest request,
-            @NonNull HttpServletResponse response,
-            @NonNull Object handler) {
-        try {
-            // Log incoming request information
-            String requestURI = request.getRequestURI();
-            String requestId = UUID.randomUUID().toString(); // Generate a unique request ID
-            String method = request.getMethod();
+    public static final String REQUEST_ID_ATTRIBUTE = "request-id";
+    public static final String START_ATTRIBUTE = "start";
+    public static final String QUERIES_ATTRIBUTE = "queries";
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String LATENCY_METRIC = "http.handler.latency";
+    public static final String QUERIES_METRIC = "http.handler.queries";
 
-            request.setAttribute("start", System.currentTimeMillis());
-            request.setAttribute("request-id", requestId);
-            request.setAttribute("request-uri", requestURI);
+    private final AtomicLong requestCounter = new AtomicLong();
+    private final String nodePrefix;
+    private final double sampleRate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> querySummaries = new ConcurrentHashMap<>();
 
-            log.info("Request id {} - Calling {} {}", requestId, method, requestURI);
-            return true;
-        } catch (Exception e) {
-            log.error("An error occurred:", e);
-            throw e;
-        }
+    public LoggingInterceptor(ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${app.access-log.node-id:}") String nodeId,
+                              @Value("${app.access-log.sample-rate:1.0}") double sampleRate) {
+        this.meterRegistry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new); // Web slices run without metrics
+        // Without a configured node id, a random prefix still keeps ids unique across restarts and nodes
+        this.nodePrefix = nodeId.isEmpty()
+                ? Integer.toString(ThreadLocalRandom.current().nextInt(0x100000, 0x1000000), 16)
+                : nodeId;
+        this.sampleRate = sampleRate;
     }
 
     @Override
-    public void postHandle(
+    public boolean preHandle(
             @NonNull HttpServletRequest request,
             @NonNull HttpServletResponse response,
-            @NonNull Object handler, ModelAndView modelAndView) {
-        try {
-            // Log response information
-            int responseStatus = response.getStatus();
-            log.info("Response sent with status {}", responseStatus);
-        } catch (Exception e) {
-            log.error("An error occurred:", e);
-            throw e;
+            @NonNull Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) != null) {
+            return true; // Async re-dispatch of a request that is already being tracked
         }
+        String requestId = nodePrefix + "-" + Long.toString(requestCounter.incrementAndGet(), 36);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        request.setAttribute(REQUEST_ID_ATTRIBUTE, requestId);
+        request.setAttribute(QUERIES_ATTRIBUTE, QueryCounter.mark());
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        return true;
     }
 
     @Override
@@ -58,23 +74,61 @@ public class LoggingInterceptor implements HandlerInterceptor {
             @NonNull HttpServletResponse response,
             @NonNull Object handler,
             Exception exception) {
-        try {
-            String requestId = (String) request.getAttribute("request-id");
-            long startTime = (long) request.getAttribute("start");
-            long duration = System.currentTimeMillis() - startTime;
-
-            log.info("Request id {} - Status {} - Completed in {}ms",
-                    requestId,
-                    response.getStatus(),
-                    duration);
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - (long) start;
+        int status = response.getStatus();
+        // Only statements run on the thread that started the request are seen, which covers synchronous handlers
+        long queries = request.getAttribute(QUERIES_ATTRIBUTE) instanceof QueryCounter.Mark mark ? mark.statements() : 0;
+        if (handler instanceof HandlerMethod handlerMethod) {
+            latencyTimer(handlerMethod, exception != null ? 500 : status).record(durationNanos, TimeUnit.NANOSECONDS);
+            querySummary(handlerMethod).record(queries);
+        }
 
-            // Clean up request attributes
-            request.removeAttribute("start");
-            request.removeAttribute("request-id");
-            request.removeAttribute("request-uri");
-        } catch (Exception e) {
-            log.error("An error occurred:", e);
-            throw e;
+        // Failures are always written, successful requests only at the configured sample rate
+        boolean failed = exception != null || status >= 500;
+        if (log.isInfoEnabled() && (failed || sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            String user = authentication != null && authentication.isAuthenticated() ? authentication.getName() : "-";
+            log.info("id={} method={} uri=\"{}\" status={} user=\"{}\" duration_us={} queries={}{}",
+                    request.getAttribute(REQUEST_ID_ATTRIBUTE),
+                    request.getMethod(),
+                    request.getRequestURI(),
+                    status,
+                    user,
+                    durationNanos / 1_000,
+                    queries,
+                    exception != null ? " error=\"" + exception.getClass().getSimpleName() + "\"" : "");
         }
+
+        // Clean up request attributes
+        request.removeAttribute(START_ATTRIBUTE);
+        request.removeAttribute(REQUEST_ID_ATTRIBUTE);
+        request.removeAttribute(QUERIES_ATTRIBUTE);
+    }
+
+    private Timer latencyTimer(HandlerMethod handlerMethod, int status) {
+        String handlerName = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        String statusClass = (status / 100) + "xx";
+        return latencyTimers.computeIfAbsent(handlerName + " " + statusClass, key ->
+                Timer.builder(LATENCY_METRIC)
+                        .description("Handler latency from the interceptor chain, grouped by status class")
+                        .tag("handler", handlerName)
+                        .tag("status", statusClass)
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .percentilePrecision(2)
+                        .distributionStatisticExpiry(Duration.ofMinutes(2))
+                        .register(meterRegistry));
+    }
+
+    private DistributionSummary querySummary(HandlerMethod handlerMethod) {
+        String handlerName = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        return querySummaries.computeIfAbsent(handlerName, key ->
+                DistributionSummary.builder(QUERIES_METRIC)
+                        .description("SQL statements run per request, grouped by handler")
+                        .tag("handler", handlerName)
+                        .register(meterRegistry));
     }
-}
\ No newline at end of file
+}
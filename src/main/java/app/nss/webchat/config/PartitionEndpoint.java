@@ -0,0 +1,217 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.config.utils.KafkaListeners;
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ChatRoomRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.ConsumerGroupState;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Component
+@Endpoint(id = "partitions")
+public class PartitionEndpoint {
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 10;
+
+    private final KafkaAdmin kafkaAdmin;
+    private final KafkaPublisher kafkaPublisher;
+    private final ChatRoomRepository chatRoomRepository;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final Duration drainTimeout;
+
+    public PartitionEndpoint(KafkaAdmin kafkaAdmin, KafkaPublisher kafkaPublisher,
+                             ChatRoomRepository chatRoomRepository, KafkaListenerEndpointRegistry listenerRegistry,
+                             @Value("${app.kafka.messages.drain-timeout:PT30S}") Duration drainTimeout) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.kafkaPublisher = kafkaPublisher;
+        this.chatRoomRepository = chatRoomRepository;
+        this.listenerRegistry = listenerRegistry;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @ReadOperation
+    public PartitionReport partitions(@Nullable Integer target) throws Exception {
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            int current = partitionCount(admin);
+            return report(current, target == null ? current : target, consumerLag(admin));
+        }
+    }
+
+    // The listener starts with app.kafka.messages.partitions threads, the topic may have been grown since
+    @EventListener(ApplicationReadyEvent.class)
+    public void scaleListener() {
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            scaleListener(partitionCount(admin));
+        } catch (Exception e) {
+            log.warn("Could not read the partitions of topic {}: {}", KafkaTopConfig.MESSAGES_TOPIC, e.getMessage());
+        }
+    }
+
+    // Growing the topic changes the partition of some room keys. To keep each room ordered, this node's
+    // publisher is paused and every active consumer group must drain the old partitions before the new ones are added.
+    // Other application nodes keep publishing, so run this while traffic is low or the cluster is scaled to one.
+    @WriteOperation
+    public PartitionReport grow(int partitions) throws Exception {
+        try (AdminClient admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            int current = partitionCount(admin);
+            if (partitions <= current) {
+                throw new ApplicationException(HttpStatus.BAD_REQUEST,
+                        "Topic " + KafkaTopConfig.MESSAGES_TOPIC + " already has " + current + " partitions.");
+            }
+            Runnable resume = kafkaPublisher.pause();
+            try {
+                Map<String, Long> lag = awaitDrained(admin);
+                if (!lag.isEmpty()) {
+                    throw new ApplicationException(HttpStatus.CONFLICT, "Consumer groups " + lag
+                            + " still have records to process, partitions were not changed.");
+                }
+                admin.createPartitions(Map.of(KafkaTopConfig.MESSAGES_TOPIC, NewPartitions.increaseTo(partitions)))
+                        .all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                // Restarting the listener picks up the new partitions now instead of at the next metadata refresh
+                scaleListener(partitions);
+            } finally {
+                resume.run();
+            }
+            PartitionReport report = report(current, partitions, Map.of());
+            log.info("Grew topic {} from {} to {} partitions, {} of {} rooms moved.",
+                    KafkaTopConfig.MESSAGES_TOPIC, current, partitions, report.movedRooms().size(), report.rooms());
+            return report;
+        }
+    }
+
+    private Map<String, Long> awaitDrained(AdminClient admin) throws Exception {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        Map<String, Long> lag = consumerLag(admin);
+        while (!lag.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(200);
+            lag = consumerLag(admin);
+        }
+        return lag;
+    }
+
+    private void scaleListener(int partitions) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(KafkaListeners.MESSAGES_LISTENER);
+        if (container instanceof ConcurrentMessageListenerContainer<?, ?> listener
+                && listener.getConcurrency() != partitions) {
+            boolean running = listener.isRunning();
+            listener.stop();
+            listener.setConcurrency(partitions);
+            if (running) {
+                listener.start();
+            }
+            log.info("Listener {} now runs {} consumer threads.", KafkaListeners.MESSAGES_LISTENER, partitions);
+        }
+    }
+
+    private int partitionCount(AdminClient admin)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        TopicDescription description = admin.describeTopics(List.of(KafkaTopConfig.MESSAGES_TOPIC))
+                .allTopicNames().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .get(KafkaTopConfig.MESSAGES_TOPIC);
+        return description.partitions().size();
+    }
+
+    // Records still waiting in any group that reads the room topics, the retry tiers included
+    private Map<String, Long> consumerLag(AdminClient admin)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Map<String, Map<TopicPartition, OffsetAndMetadata>> committed = new TreeMap<>();
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        for (ConsumerGroupListing group : admin.listConsumerGroups().all()
+                .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            // A group without members, like the one of a stopped node, reads nothing and would never drain
+            if (group.state().filter(state -> state == ConsumerGroupState.EMPTY
+                    || state == ConsumerGroupState.DEAD).isPresent()) {
+                continue;
+            }
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            admin.listConsumerGroupOffsets(group.groupId()).partitionsToOffsetAndMetadata()
+                    .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .forEach((partition, offset) -> {
+                        if (offset != null && isRoomTopic(partition.topic())) {
+                            offsets.put(partition, offset);
+                            latest.put(partition, OffsetSpec.latest());
+                        }
+                    });
+            if (!offsets.isEmpty()) {
+                committed.put(group.groupId(), offsets);
+            }
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> endOffsets = admin.listOffsets(latest)
+                .all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Map<String, Long> lag = new TreeMap<>();
+        // A partition a group never committed on is read from its reset offset and is not counted
+        committed.forEach((group, offsets) -> offsets.forEach((partition, offset) -> {
+            long behind = endOffsets.get(partition).offset() - offset.offset();
+            if (behind > 0) {
+                lag.merge(group, behind, Long::sum);
+            }
+        }));
+        return lag;
+    }
+
+    private static boolean isRoomTopic(String topic) {
+        return topic.equals(KafkaTopConfig.MESSAGES_TOPIC)
+                || topic.startsWith(KafkaTopConfig.FAILED_TOPIC) && !topic.equals(KafkaTopConfig.DEAD_LETTER_TOPIC);
+    }
+
+    private PartitionReport report(int current, int target, Map<String, Long> lag) {
+        List<Long> roomIds = chatRoomRepository.findAllIds();
+        List<RoomMove> moves = new ArrayList<>();
+        for (Long roomId : roomIds) {
+            int from = partitionFor(roomId, current);
+            int to = partitionFor(roomId, target);
+            if (from != to) {
+                moves.add(new RoomMove(roomId, from, to));
+            }
+        }
+        long total = lag.values().stream().mapToLong(Long::longValue).sum();
+        return new PartitionReport(KafkaTopConfig.MESSAGES_TOPIC, current, target, total, lag, roomIds.size(), moves);
+    }
+
+    // Same formula as the producer's default partitioner for keyed records
+    static int partitionFor(Long roomId, int partitions) {
+        byte[] key = String.valueOf(roomId).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(key)) % partitions;
+    }
+
+    public record PartitionReport(String topic, int partitions, int target, long consumerLag,
+                                  Map<String, Long> groupLag, int rooms, List<RoomMove> movedRooms) {
+    }
+
+    public record RoomMove(Long roomId, int fromPartition, int toPartition) {
+    }
+}
@@ -0,0 +1,44 @@
+package app.nss.webchat.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Counts the SQL statements Hibernate prepares on each thread, so a request can tell how many it ran
+@Component
+public class QueryCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final ThreadLocal<Count> COUNTS = ThreadLocal.withInitial(Count::new);
+
+    @Override
+    public String inspect(String sql) {
+        COUNTS.get().value++;
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    // Statements run on the current thread from now on are reported by the returned mark
+    public static Mark mark() {
+        Count count = COUNTS.get();
+        return new Mark(count, count.value);
+    }
+
+    public record Mark(Count count, long start) {
+
+        public long statements() {
+            return count.value - start;
+        }
+    }
+
+    public static final class Count {
+
+        private long value;
+    }
+}
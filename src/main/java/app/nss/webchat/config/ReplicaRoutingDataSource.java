@@ -0,0 +1,114 @@
+package app.nss.webchat.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sends read-only transactions to the replica pool and everything else to the primary. Reads fall back to the
+// primary while the replica is further behind than the allowed lag or cannot be reached, and until it was checked.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    // Zero while the replica has replayed everything it received, so an idle primary does not look like lag
+    static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+    private static final int LAG_QUERY_TIMEOUT_SECONDS = 2;
+
+    private final DataSource replica;
+    private final double maxLagSeconds;
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private volatile boolean replicaUsable;
+    private volatile double lagSeconds = Double.NaN;
+    private ScheduledExecutorService lagChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration maxLag,
+                                    MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryConnections = Counter.builder("datasource.routing.connections").tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("datasource.routing.connections").tag("target", "replica")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.lag", this, dataSource -> dataSource.lagSeconds).baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, dataSource -> dataSource.replicaUsable ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaUsable && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            replicaConnections.increment();
+            return Target.REPLICA;
+        }
+        primaryConnections.increment();
+        return Target.PRIMARY;
+    }
+
+    // On its own thread: while the replica is down every check waits for the replica pool's connection timeout,
+    // which must not hold up the jobs on the shared scheduler
+    public void startLagChecks(Duration interval) {
+        lagChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecks.scheduleWithFixedDelay(this::checkLag, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (lagChecks != null) {
+            lagChecks.shutdownNow();
+        }
+    }
+
+    public void checkLag() {
+        boolean usable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(LAG_QUERY_TIMEOUT_SECONDS);
+            try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                lagSeconds = resultSet.getDouble(1);
+            }
+            usable = lagSeconds <= maxLagSeconds;
+        } catch (SQLException | RuntimeException e) {
+            // Anything thrown here would end the scheduled checks
+            lagSeconds = Double.NaN;
+            usable = false;
+            log.warn("Replica lag check failed: {}", e.getMessage());
+        }
+        if (usable != replicaUsable) {
+            log.info("Read-only transactions go to the {} now, replica lag is {}s.",
+                    usable ? "replica" : "primary", lagSeconds);
+        }
+        replicaUsable = usable;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+}
@@ -1,24 +1,38 @@
 package app.nss.webchat.config;
 
+import app.nss.webchat.controller.handler.RestExceptionHandler;
 import app.nss.webchat.entity.User;
 import app.nss.webchat.entity.UserStatus;
+import app.nss.webchat.exception.ApplicationException;
 import app.nss.webchat.repository.UserRepository;
+import app.nss.webchat.service.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
 import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
 
 import java.util.Collections;
@@ -31,9 +45,11 @@ import static org.springframework.security.config.Customizer.withDefaults;
 public class SecurityConfig {
 
     private final UserRepository userRepository;
+    private final TokenService tokenService;
 
-    public SecurityConfig(UserRepository userRepository) {
+    public SecurityConfig(UserRepository userRepository, TokenService tokenService) {
         this.userRepository = userRepository;
+        this.tokenService = tokenService;
     }
 
     @Bean
@@ -42,15 +58,22 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorizeRequests ->
                         authorizeRequests
+                                // Streamed responses end with an async dispatch of a request that was already authorized
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .requestMatchers(PathRequest.toStaticResources().atCommonLocations()).permitAll()
                                 .requestMatchers(HttpMethod.POST, "/users/register").permitAll()
+                                .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
+                                .requestMatchers(HttpMethod.POST, "/actuator/**").hasRole("ADMIN")
                                 .anyRequest().authenticated()
                 )
-                .httpBasic(withDefaults())
+                // Bearer tokens are resolved before logout and basic auth, so both see the token principal
+                .addFilterBefore(new TokenAuthenticationFilter(tokenService), LogoutFilter.class)
+                .httpBasic(basic -> basic.authenticationEntryPoint(basicAuthenticationEntryPoint()))
                 .formLogin(withDefaults())
                 .logout(logout ->
                         logout
                                 .logoutUrl("/logout")
+                                .addLogoutHandler(tokenLogoutHandler())
                                 .logoutSuccessHandler(logoutSuccessHandler())
                                 .invalidateHttpSession(true)
                 );
@@ -58,11 +81,21 @@ public class SecurityConfig {
     }
 
 
+    @Bean
+    public LogoutHandler tokenLogoutHandler() {
+        return (request, response, authentication) -> {
+            String token = TokenAuthenticationFilter.resolveToken(request);
+            if (token != null) {
+                tokenService.revokeToken(token);
+            }
+        };
+    }
+
     @Bean
     public LogoutSuccessHandler logoutSuccessHandler() {
         return (request, response, authentication) -> {
             User user = userRepository.findByUsername(authentication.getName());
-            if (user != null) {
+            if (user != null && user.getUserStatus() != UserStatus.DELETED) {
                 user.setUserStatus(UserStatus.OFFLINE);
                 userRepository.save(user);
             }
@@ -71,11 +104,49 @@ public class SecurityConfig {
         };
     }
 
+    // Basic auth verifies the password inside the filter chain, where RestExceptionHandler does not apply.
+    // A saturated hashing pool arrives here as the cause of the authentication failure and is answered with 503.
+    static AuthenticationEntryPoint basicAuthenticationEntryPoint() {
+        BasicAuthenticationEntryPoint basic = new BasicAuthenticationEntryPoint();
+        basic.setRealmName("Realm");
+        return (request, response, authException) -> {
+            if (authException.getCause() instanceof ApplicationException exception
+                    && exception.getHttpStatus() == HttpStatus.SERVICE_UNAVAILABLE) {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+                response.getWriter().write(RestExceptionHandler.APPLICATION_FIELD + ": " + exception.getMessage());
+                return;
+            }
+            basic.commence(request, response, authException);
+        };
+    }
+
+    // Failures of the password encoder are wrapped, so they end at the entry point instead of leaving the
+    // filter chain as a 500
+    static DaoAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                            PasswordEncoder passwordEncoder) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider() {
+            @Override
+            protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                          UsernamePasswordAuthenticationToken authentication) {
+                try {
+                    super.additionalAuthenticationChecks(userDetails, authentication);
+                } catch (ApplicationException e) {
+                    throw new InternalAuthenticationServiceException(e.getMessage(), e);
+                }
+            }
+        };
+        provider.setUserDetailsService(userDetailsService);
+        provider.setPasswordEncoder(passwordEncoder);
+        return provider;
+    }
+
     @Autowired
-    public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(username -> {
+    public void configureGlobal(AuthenticationManagerBuilder auth, PasswordEncoder passwordEncoder) {
+        auth.authenticationProvider(authenticationProvider(username -> {
             User user = userRepository.findByUsername(username);
-            if (user != null) {
+            if (user != null && user.getUserStatus() != UserStatus.DELETED) {
                 user.setUserStatus(UserStatus.ONLINE);
                 userRepository.save(user);
                 SimpleGrantedAuthority authority = new SimpleGrantedAuthority(user.getRole().toString());
@@ -88,11 +159,6 @@ public class SecurityConfig {
             } else {
                 throw new UsernameNotFoundException("User " + username + " not found.");
             }
-        });
-    }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        }, passwordEncoder));
     }
 }
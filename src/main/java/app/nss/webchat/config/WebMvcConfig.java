@@ -1,5 +1,6 @@
 package app.nss.webchat.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -7,9 +8,20 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    private final LoggingInterceptor loggingInterceptor;
+    private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+    @Autowired
+    public WebMvcConfig(LoggingInterceptor loggingInterceptor,
+                        ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+        this.loggingInterceptor = loggingInterceptor;
+        this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        registry.addInterceptor(new LoggingInterceptor()).order(1);
-        registry.addInterceptor(new AuthenticationInterceptor()).order(2);
+        registry.addInterceptor(loggingInterceptor).order(1);
+        // After logging, so shed requests still show up in the access log and latency metrics
+        registry.addInterceptor(concurrencyLimitInterceptor).order(2);
     }
 }
@@ -1,25 +1,103 @@
 package app.nss.webchat.config.utils;
 
+import app.nss.webchat.config.KafkaTopConfig;
+import app.nss.webchat.dto.event.MessageEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
 @Slf4j
 @Component
 public class KafkaListeners {
 
+    public static final String MESSAGES_LISTENER = "messagesListener";
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(KafkaListeners.class);
+
+    // Partitions added by the partitions endpoint are read from their start, other nodes may publish to them
+    // before this group sees them
     @KafkaListener(
-            topics = "messages",
-            groupId = "messagesId"
+            id = MESSAGES_LISTENER,
+            topics = KafkaTopConfig.MESSAGES_TOPIC,
+            groupId = "messagesId",
+            containerFactory = "factory",
+            properties = "auto.offset.reset=earliest"
     )
-    public void listener(String data, @Header(KafkaHeaders.RECEIVED_KEY) String key) {
-        try {
-            log.info("Listener received: " + data);
-        } catch (Exception e) {
-            log.error("Error processing message with key " + key + ": " + e.getMessage());
+    public void listener(List<ConsumerRecord<String, MessageEvent>> records) {
+        Map<MessageEvent.Type, Integer> counts = new EnumMap<>(MessageEvent.Type.class);
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, MessageEvent> record = records.get(i);
+            try {
+                process(record);
+            } catch (RuntimeException e) {
+                // Records before the index are committed, this one goes to the retry topics, the rest is redelivered
+                throw new BatchListenerFailedException("Failed to process message event.", e, i);
+            }
+            counts.merge(record.value().type(), 1, Integer::sum);
         }
+        log.info("Listener received a batch of {} records: {}", records.size(), counts);
     }
-}
 
+    @RetryableTopic(
+            attempts = "${app.kafka.retry.attempts:4}",
+            backoff = @Backoff(
+                    delayExpression = "${app.kafka.retry.delay:1000}",
+                    multiplierExpression = "${app.kafka.retry.multiplier:5}",
+                    maxDelayExpression = "${app.kafka.retry.max-delay:60000}"
+            ),
+            numPartitions = "${app.kafka.messages.partitions:6}",
+            replicationFactor = "${app.kafka.messages.replicas:1}",
+            kafkaTemplate = "deadLetterKafkaTemplate",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            exclude = DeserializationException.class
+    )
+    @KafkaListener(
+            topics = KafkaTopConfig.FAILED_TOPIC,
+            groupId = "messagesRetryId",
+            containerFactory = "retryFactory"
+    )
+    public void retryListener(ConsumerRecord<String, MessageEvent> record) {
+        process(record);
+        log.info("Listener recovered {} for message {} in room {}",
+                record.value().type(), record.value().messageId(), record.key());
+    }
+
+    @DltHandler
+    public void deadLetterListener(ConsumerRecord<String, MessageEvent> record,
+                                   @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String error) {
+        log.error("Message event with key {} moved to {} at offset {}: {}",
+                record.key(), KafkaTopConfig.DEAD_LETTER_TOPIC, record.offset(), error);
+    }
+
+    private void process(ConsumerRecord<String, MessageEvent> record) {
+        MessageEvent event = record.value();
+        if (event == null) {
+            DeserializationException exception = ListenerUtils.getExceptionFromHeader(
+                    record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+            if (exception != null) {
+                throw exception;
+            }
+            throw new IllegalArgumentException("Message event without a value.");
+        }
+        if (event.messageId() == null || event.roomId() == null) {
+            throw new IllegalArgumentException("Message event without message or room id.");
+        }
+        log.debug("Listener received {} for message {} in room {}", event.type(), event.messageId(), record.key());
+    }
+}
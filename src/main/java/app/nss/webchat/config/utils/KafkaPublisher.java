@@ -0,0 +1,274 @@
+package app.nss.webchat.config.utils;
+
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.event.MessageEventDeserializer;
+import app.nss.webchat.dto.event.MessageEventSerializer;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Slf4j
+@Component
+public class KafkaPublisher {
+
+    private static final String OVERLOADED_MESSAGE = "Message delivery is overloaded, please try again later.";
+    private static final String SPILL_FILE = "spill.log";
+
+    public enum OverflowPolicy {
+        FAIL_FAST,
+        SPILL
+    }
+
+    private final KafkaTemplate<String, MessageEvent> kafkaTemplate;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillDirectory;
+    private final Semaphore inFlight;
+    private final ThreadPoolExecutor sender;
+    private final Object spillLock = new Object();
+    private final Timer ackTimer;
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter rejectedCounter;
+    private final Counter spilledCounter;
+
+    @Autowired
+    public KafkaPublisher(KafkaTemplate<String, MessageEvent> kafkaTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.kafka.publisher.max-in-flight:1024}") int maxInFlight,
+                          @Value("${app.kafka.publisher.overflow:FAIL_FAST}") OverflowPolicy overflowPolicy,
+                          @Value("${app.kafka.publisher.spill-directory:${java.io.tmpdir}/web-chat-spill}")
+                          Path spillDirectory) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.overflowPolicy = overflowPolicy;
+        this.spillDirectory = spillDirectory;
+        this.inFlight = new Semaphore(maxInFlight);
+        // send() may block for max.block.ms while metadata is missing, so it never runs on the request thread.
+        // The queue is effectively bounded by the in-flight permits taken before a record is handed over.
+        this.sender = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "kafka-publisher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.ackTimer = Timer.builder("kafka.publish.duration").register(meterRegistry);
+        this.successCounter = Counter.builder("kafka.publish").tag("result", "success").register(meterRegistry);
+        this.failureCounter = Counter.builder("kafka.publish").tag("result", "failure").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("kafka.publish.rejected").register(meterRegistry);
+        this.spilledCounter = Counter.builder("kafka.publish.spilled").register(meterRegistry);
+        Gauge.builder("kafka.publish.in-flight", inFlight, s -> maxInFlight - s.availablePermits())
+                .register(meterRegistry);
+    }
+
+    public void publish(String topic, String key, MessageEvent event) {
+        if (!inFlight.tryAcquire()) {
+            rejectedCounter.increment();
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                spill(topic, key, event);
+                return;
+            }
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+        submit(topic, key, event);
+    }
+
+    // Takes the in-flight permit before the write the event belongs to, so a full window turns the request away
+    // before anything was written instead of after the commit. Under SPILL the reservation holds no permit and
+    // its event takes the usual way. Closing an unused reservation gives its permit back.
+    public Reservation reserve() {
+        if (inFlight.tryAcquire()) {
+            return new Reservation(true);
+        }
+        rejectedCounter.increment();
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            return new Reservation(false);
+        }
+        throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+    }
+
+    public void publish(Reservation reservation, String topic, String key, MessageEvent event) {
+        if (reservation.held.getAndSet(false)) {
+            submit(topic, key, event);
+        } else {
+            publish(topic, key, event);
+        }
+    }
+
+    private void submit(String topic, String key, MessageEvent event) {
+        try {
+            sender.execute(() -> send(topic, key, event, null));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+    }
+
+    // Completes when the broker acknowledged the record and fails with the send error otherwise. Neither a full
+    // window nor a failed send spills, the caller still has the record and decides what to do with it.
+    public CompletableFuture<Void> publishAcknowledged(String topic, String key, MessageEvent event) {
+        if (!inFlight.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        try {
+            sender.execute(() -> send(topic, key, event, acknowledged));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED_MESSAGE);
+        }
+        return acknowledged;
+    }
+
+    private void send(String topic, String key, MessageEvent event, CompletableFuture<Void> acknowledged) {
+        long start = System.nanoTime();
+        try {
+            kafkaTemplate.send(topic, key, event).whenComplete((result, exception) -> {
+                inFlight.release();
+                ackTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                if (exception == null) {
+                    successCounter.increment();
+                    if (acknowledged != null) {
+                        acknowledged.complete(null);
+                    }
+                } else {
+                    onFailure(topic, key, event, exception, acknowledged);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            onFailure(topic, key, event, e, acknowledged);
+        }
+    }
+
+    private void onFailure(String topic, String key, MessageEvent event, Throwable exception,
+                           CompletableFuture<Void> acknowledged) {
+        failureCounter.increment();
+        log.warn("Failed to publish record with key {} to {}: {}", key, topic, exception.getMessage());
+        if (acknowledged != null) {
+            acknowledged.completeExceptionally(exception);
+        } else if (overflowPolicy == OverflowPolicy.SPILL) {
+            spill(topic, key, event);
+        }
+    }
+
+    private void spill(String topic, String key, MessageEvent event) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        String line = topic + "\t" + (key == null ? "" : encoder.encodeToString(key.getBytes(StandardCharsets.UTF_8)))
+                + "\t" + encoder.encodeToString(MessageEventSerializer.encode(event));
+        synchronized (spillLock) {
+            try {
+                Files.createDirectories(spillDirectory);
+                try (BufferedWriter writer = Files.newBufferedWriter(spillDirectory.resolve(SPILL_FILE),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                spilledCounter.increment();
+            } catch (IOException e) {
+                log.error("Failed to spill record with key {} to disk: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    // Flushes the producer and holds back later records until the returned handle runs;
+    // they wait in the sender queue and keep counting against the in-flight window
+    public Runnable pause() throws InterruptedException {
+        CountDownLatch paused = new CountDownLatch(1);
+        CountDownLatch resumed = new CountDownLatch(1);
+        sender.execute(() -> {
+            kafkaTemplate.flush();
+            paused.countDown();
+            try {
+                resumed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        paused.await();
+        return resumed::countDown;
+    }
+
+    @Scheduled(fixedDelayString = "${app.kafka.publisher.replay-interval:PT30S}")
+    public void replaySpilled() {
+        if (overflowPolicy != OverflowPolicy.SPILL) {
+            return;
+        }
+        Path replaying = spillDirectory.resolve(SPILL_FILE + ".replaying");
+        List<String> lines;
+        synchronized (spillLock) {
+            Path spillFile = spillDirectory.resolve(SPILL_FILE);
+            if (!Files.exists(replaying) && !Files.exists(spillFile)) {
+                return;
+            }
+            try {
+                if (!Files.exists(replaying)) {
+                    Files.move(spillFile, replaying, StandardCopyOption.ATOMIC_MOVE);
+                }
+                lines = Files.readAllLines(replaying, StandardCharsets.UTF_8);
+                Files.delete(replaying);
+            } catch (IOException e) {
+                log.error("Failed to read spilled records: {}", e.getMessage());
+                return;
+            }
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (String line : lines) {
+            String[] parts = line.split("\t", -1);
+            String key = parts[1].isEmpty() ? null : new String(decoder.decode(parts[1]), StandardCharsets.UTF_8);
+            // Records that do not fit into the window again go straight back to the spill file
+            publish(parts[0], key, MessageEventDeserializer.decode(decoder.decode(parts[2])));
+        }
+        log.info("Replayed {} spilled records.", lines.size());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        sender.shutdown();
+        sender.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public final class Reservation implements AutoCloseable {
+
+        private final AtomicBoolean held;
+
+        private Reservation(boolean held) {
+            this.held = new AtomicBoolean(held);
+        }
+
+        @Override
+        public void close() {
+            if (held.getAndSet(false)) {
+                inFlight.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package app.nss.webchat.config.utils;
+
+import app.nss.webchat.config.KafkaTopConfig;
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.service.RoomTimelineService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+// Every node needs every event for the timelines it holds, so the partitions are assigned to this node's
+// consumer directly. Without a group nothing is committed and nothing is left behind in the broker.
+@Slf4j
+@Component
+public class RoomTimelineListener implements SmartLifecycle {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final ConsumerFactory<String, MessageEvent> consumerFactory;
+    private final RoomTimelineService roomTimelineService;
+    private final Duration partitionRefresh;
+    private volatile Consumer<String, MessageEvent> consumer;
+    private volatile Thread thread;
+
+    @Autowired
+    public RoomTimelineListener(ConsumerFactory<String, MessageEvent> consumerFactory,
+                                RoomTimelineService roomTimelineService,
+                                @Value("${app.timeline.partition-refresh:PT10S}") Duration partitionRefresh) {
+        this.consumerFactory = consumerFactory;
+        this.roomTimelineService = roomTimelineService;
+        this.partitionRefresh = partitionRefresh;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        // Partitions added by the partitions endpoint show up after the next metadata refresh
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.METADATA_MAX_AGE_CONFIG, (int) partitionRefresh.toMillis());
+        consumer = consumerFactory.createConsumer(null, "timeline", null, properties);
+        thread = new Thread(this::run, "room-timeline");
+        thread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        consumer.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    private void run() {
+        Set<TopicPartition> assigned = new HashSet<>();
+        try (Consumer<String, MessageEvent> consumer = this.consumer) {
+            // Timelines are loaded from the database, so only events from now on are needed
+            assign(consumer, assigned, false);
+            roomTimelineService.setLive(true);
+            while (true) {
+                for (ConsumerRecord<String, MessageEvent> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.value() != null) {
+                        roomTimelineService.apply(record.value());
+                    }
+                }
+                assign(consumer, assigned, true);
+            }
+        } catch (WakeupException e) {
+            // Stopped
+        } catch (RuntimeException e) {
+            log.error("Room timelines stopped following topic {}: {}", KafkaTopConfig.MESSAGES_TOPIC, e.getMessage());
+        } finally {
+            roomTimelineService.setLive(false);
+        }
+    }
+
+    // A partition added while running only holds events published after this node started, so it is read
+    // from its start
+    private static void assign(Consumer<String, MessageEvent> consumer, Set<TopicPartition> assigned, boolean added) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : consumer.partitionsFor(KafkaTopConfig.MESSAGES_TOPIC)) {
+            TopicPartition partition = new TopicPartition(info.topic(), info.partition());
+            if (!assigned.contains(partition)) {
+                partitions.add(partition);
+            }
+        }
+        if (partitions.isEmpty()) {
+            return;
+        }
+        assigned.addAll(partitions);
+        consumer.assign(assigned);
+        if (added) {
+            consumer.seekToBeginning(partitions);
+        } else {
+            consumer.seekToEnd(partitions);
+        }
+        // Resolves the lazy seeks now, events published from here on are not missed
+        partitions.forEach(consumer::position);
+    }
+}
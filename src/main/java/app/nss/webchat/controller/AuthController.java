@@ -0,0 +1,43 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.request.UserRequest;
+import app.nss.webchat.dto.response.TokenResponse;
+import app.nss.webchat.entity.User;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.TokenService;
+import app.nss.webchat.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@Slf4j
+@RestController
+@RequestMapping(path = "/auth")
+public class AuthController {
+
+    private final UserService userService;
+    private final TokenService tokenService;
+
+    @Autowired
+    public AuthController(UserService userService, TokenService tokenService) {
+        this.userService = userService;
+        this.tokenService = tokenService;
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @PostMapping(path = "/login")
+    public ResponseEntity<TokenResponse> login(@RequestBody UserRequest request) {
+        if (request.username() == null || request.password() == null) {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Username and password must be specified.");
+        }
+        User user = userService.authenticate(request.username(), request.password());
+        log.info("User {} has been successfully logged in.", user.getUsername());
+        return ResponseEntity.ok(new TokenResponse(
+                tokenService.issueToken(user),
+                "Bearer",
+                tokenService.getTtlSeconds()
+        ));
+    }
+}
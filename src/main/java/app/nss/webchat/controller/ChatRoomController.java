@@ -1,6 +1,7 @@
 package app.nss.webchat.controller;
 
 import app.nss.webchat.dto.request.ChatRoomRequest;
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.ChatRoom;
 import app.nss.webchat.exception.ApplicationException;
 import app.nss.webchat.service.BlockedUserService;
@@ -12,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @Slf4j
@@ -159,15 +161,17 @@ public class ChatRoomController {
         chatRoomService.updateChatRoom(id, chatRoomRequest.name(), chatRoomRequest.description());
     }
 
-    @ResponseStatus(HttpStatus.OK)
+    // Messages and participants of the room are removed by a background job, its progress is at the location
+    @ResponseStatus(HttpStatus.ACCEPTED)
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public void deleteChatRoom(@PathVariable(value = "id") Long id) {
+    public ResponseEntity<CleanupJobResponse> deleteChatRoom(@PathVariable(value = "id") Long id) {
         if (id <= 0) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "ChatRoom id must be specified.");
         }
-        log.info("Chat room has been successfully deleted.");
-        chatRoomService.deleteChatRoom(id);
+        CleanupJobResponse job = chatRoomService.deleteChatRoom(id);
+        log.info("Chat room deletion has been started as job {}.", job.id());
+        return ResponseEntity.accepted().location(URI.create("/cleanup-jobs/" + job.id())).body(job);
     }
 
     @ResponseStatus(HttpStatus.OK)
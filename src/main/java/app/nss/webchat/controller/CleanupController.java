@@ -0,0 +1,39 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.response.CleanupJobResponse;
+import app.nss.webchat.service.CleanupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping(path = "/cleanup-jobs")
+public class CleanupController {
+
+    private final CleanupService cleanupService;
+
+    @Autowired
+    public CleanupController(CleanupService cleanupService) {
+        this.cleanupService = cleanupService;
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<List<CleanupJobResponse>> getJobs() {
+        return ResponseEntity.ok(cleanupService.getJobs());
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping(path = "/{id}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<CleanupJobResponse> getJob(@PathVariable(value = "id") String id) {
+        return ResponseEntity.ok(cleanupService.getJob(id));
+    }
+}
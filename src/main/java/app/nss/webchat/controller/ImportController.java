@@ -0,0 +1,56 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.response.ImportResponse;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.ImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+@Slf4j
+@RestController
+@RequestMapping(path = "/import")
+public class ImportController {
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    // The request body is read as it arrives, so inputs of any size can be sent in one request
+    // Ids must be above those the application may already have handed out, idOffset moves them there
+    @ResponseStatus(HttpStatus.OK)
+    @PostMapping(path = "/{table}")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<ImportResponse> importRows(
+            @PathVariable(value = "table") String table,
+            @RequestParam(value = "importId") String importId,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            @RequestParam(value = "idOffset", defaultValue = "0") long idOffset,
+            InputStream body) throws IOException {
+        if (importId.isBlank()) {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Import id must be specified.");
+        }
+        ImportService.Format inputFormat;
+        if (format.equals("ndjson")) {
+            inputFormat = ImportService.Format.NDJSON;
+        } else if (format.equals("csv")) {
+            inputFormat = ImportService.Format.CSV;
+        } else {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Format must be specified: ndjson/csv.");
+        }
+        InputStream input = gzip ? new GZIPInputStream(body, 1 << 16) : body;
+        return ResponseEntity.ok(importService.importRows(
+                importId, ImportService.Table.of(table), inputFormat, input, idOffset));
+    }
+}
@@ -1,17 +1,28 @@
 package app.nss.webchat.controller;
 
 
+import app.nss.webchat.config.KafkaTopConfig;
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.dto.event.MessageEvent;
 import app.nss.webchat.dto.request.MessageRequest;
 import app.nss.webchat.entity.Message;
 import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.ExportService;
+import app.nss.webchat.service.IdempotencyService;
 import app.nss.webchat.service.MessageService;
+import app.nss.webchat.service.RateLimitService;
+import app.nss.webchat.service.RoomTimelineService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,13 +31,25 @@ import java.util.List;
 @RequestMapping(path = "/message")
 public class MessageController {
 
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final MessageService messageService;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final RoomTimelineService roomTimelineService;
+    private final KafkaPublisher kafkaPublisher;
+    private final ExportService exportService;
+    private final RateLimitService rateLimitService;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public MessageController(MessageService messageService, KafkaTemplate<String, String> kafkaTemplate) {
+    public MessageController(MessageService messageService, RoomTimelineService roomTimelineService,
+                             KafkaPublisher kafkaPublisher, ExportService exportService,
+                             RateLimitService rateLimitService, IdempotencyService idempotencyService) {
         this.messageService = messageService;
-        this.kafkaTemplate = kafkaTemplate;
+        this.roomTimelineService = roomTimelineService;
+        this.kafkaPublisher = kafkaPublisher;
+        this.exportService = exportService;
+        this.rateLimitService = rateLimitService;
+        this.idempotencyService = idempotencyService;
     }
 
     @ResponseStatus(HttpStatus.OK)
@@ -36,6 +59,18 @@ public class MessageController {
         return ResponseEntity.ok(messageService.getAllMessages());
     }
 
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping(path = "/export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportMessages(
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        String fileName = gzip ? "messages.ndjson.gz" : "messages.ndjson";
+        return ResponseEntity.ok()
+                .contentType(gzip ? ExportService.GZIP : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(out -> exportService.exportMessages(out, gzip));
+    }
+
     @ResponseStatus(HttpStatus.OK)
     @GetMapping(path = "/{id}")
     @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
@@ -49,7 +84,7 @@ public class MessageController {
     @ResponseStatus(HttpStatus.OK)
     @GetMapping(path = "/filter/{id}")
     @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<List<Message>> getFilteredMessages(
+    public ResponseEntity<List<?>> getFilteredMessages(
             @RequestParam(value = "type") String filter,
             @RequestParam(value = "sort", required = false) String sort,
             @PathVariable(value = "id") Long id
@@ -58,7 +93,7 @@ public class MessageController {
             if (id <= 0) {
                 throw new ApplicationException(HttpStatus.NOT_FOUND, "Chat id must be specified.");
             }
-            return ResponseEntity.ok(messageService.getSortedMessagesForChat(id));
+            return ResponseEntity.ok(roomTimelineService.getTimeline(id));
         } else if (filter.equals("user")) {
             if (id <= 0) {
                 throw new ApplicationException(HttpStatus.NOT_FOUND, "User id must be specified.");
@@ -97,20 +132,37 @@ public class MessageController {
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping
     @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
-    public ResponseEntity<Message> sendMessage(@RequestBody MessageRequest messageRequest) {
+    public ResponseEntity<Message> sendMessage(@RequestBody MessageRequest messageRequest,
+                                               Authentication authentication) {
         if (messageRequest.content() == null) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "Message content must be specified.");
         }
+        // Before any database work, so a flooding client is turned away cheaply
+        rateLimitService.acquireMessage(authentication, messageRequest.roomId());
         if (!messageService.containsUserInRoom(messageRequest.roomId(), messageRequest.senderId())) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "Chat room does not contain this user.");
         }
-        kafkaTemplate.send("messages", messageRequest.roomId().toString(), messageRequest.content());
+        IdempotencyService.Result result;
+        // Reserved before the write, so an overloaded publisher rejects the request before the message is stored
+        try (KafkaPublisher.Reservation reservation = kafkaPublisher.reserve()) {
+            result = idempotencyService.sendOnce(
+                    messageRequest.senderId(),
+                    messageRequest.idempotencyKey(),
+                    () -> messageService.sendMessage(
+                            messageRequest.content(),
+                            messageRequest.roomId(),
+                            messageRequest.senderId()
+                    ),
+                    message -> publish(reservation, MessageEvent.Type.CREATED, message)
+            );
+        }
+        if (result.replayed()) {
+            // A retry of a message that was already sent, its event went out once with whichever attempt got it out
+            log.info("Message has already been sent with this idempotency key.");
+            return ResponseEntity.ok().header(IDEMPOTENT_REPLAYED_HEADER, "true").body(result.message());
+        }
         log.info("Message has been successfully sent.");
-        return ResponseEntity.ok(messageService.sendMessage(
-                messageRequest.content(),
-                messageRequest.roomId(),
-                messageRequest.senderId()
-        ));
+        return ResponseEntity.ok(result.message());
     }
 
     @ResponseStatus(HttpStatus.OK)
@@ -126,8 +178,11 @@ public class MessageController {
         if (messageRequest.content() == null) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "Message content must be specified.");
         }
-        messageService.updateMessage(id, messageRequest.senderId(), messageRequest.content());
-        kafkaTemplate.send("messages", id.toString(), messageRequest.content());
+        // The event is built from the saved message, a read through getMessageById may still see the old content
+        try (KafkaPublisher.Reservation reservation = kafkaPublisher.reserve()) {
+            Message message = messageService.updateMessage(id, messageRequest.senderId(), messageRequest.content());
+            publish(reservation, MessageEvent.Type.UPDATED, message);
+        }
         log.info("Message been successfully updated.");
     }
 
@@ -138,8 +193,16 @@ public class MessageController {
         if (id <= 0) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "Message id must be specified.");
         }
-        messageService.deleteMessage(id);
-        log.info("Message has been successfully deleted.");
-        kafkaTemplate.send("messages", id.toString(), "");
+        try (KafkaPublisher.Reservation reservation = kafkaPublisher.reserve()) {
+            Message message = messageService.deleteMessage(id);
+            log.info("Message has been successfully deleted.");
+            publish(reservation, MessageEvent.Type.DELETED, message);
+        }
+    }
+
+    // Every event of a room goes to the same partition, so consumers see them in order
+    private void publish(KafkaPublisher.Reservation reservation, MessageEvent.Type type, Message message) {
+        MessageEvent event = MessageEvent.of(type, message);
+        kafkaPublisher.publish(reservation, KafkaTopConfig.MESSAGES_TOPIC, String.valueOf(event.roomId()), event);
     }
 }
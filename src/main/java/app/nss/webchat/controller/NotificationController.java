@@ -3,13 +3,18 @@ package app.nss.webchat.controller;
 import app.nss.webchat.dto.request.NotificationRequest;
 import app.nss.webchat.entity.Notification;
 import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.ExportService;
 import app.nss.webchat.service.NotificationService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @RestController
@@ -18,10 +23,12 @@ import org.springframework.web.bind.annotation.*;
 public class NotificationController {
 
     private final NotificationService notificationService;
+    private final ExportService exportService;
 
     @Autowired
-    public NotificationController(NotificationService notificationService) {
+    public NotificationController(NotificationService notificationService, ExportService exportService) {
         this.notificationService = notificationService;
+        this.exportService = exportService;
     }
 
     @ResponseStatus(HttpStatus.OK)
@@ -30,6 +37,18 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getAllNotifications());
     }
 
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping(path = "/export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportNotifications(
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        String fileName = gzip ? "notifications.ndjson.gz" : "notifications.ndjson";
+        return ResponseEntity.ok()
+                .contentType(gzip ? ExportService.GZIP : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(out -> exportService.exportNotifications(out, gzip));
+    }
+
     @ResponseStatus(HttpStatus.OK)
     @GetMapping(path = "/{id}")
     public ResponseEntity<Notification> getNotificationById(@PathVariable(value = "id") Long id) {
@@ -0,0 +1,65 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.response.ReadWatermarkResponse;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.ReadReceiptService;
+import app.nss.webchat.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping(path = "/chat-rooms/{id}/read-watermarks")
+public class ReadReceiptController {
+
+    private final ReadReceiptService readReceiptService;
+    private final UserService userService;
+
+    @Autowired
+    public ReadReceiptController(ReadReceiptService readReceiptService, UserService userService) {
+        this.readReceiptService = readReceiptService;
+        this.userService = userService;
+    }
+
+    // With a message id only the users who have read that message are returned
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
+    public ResponseEntity<List<ReadWatermarkResponse>> getReadWatermarks(
+            @PathVariable(value = "id") Long id,
+            @RequestParam(value = "messageId", required = false) Long messageId) {
+        if (id <= 0) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "ChatRoom id must be specified.");
+        }
+        if (messageId == null) {
+            return ResponseEntity.ok(readReceiptService.getWatermarks(id));
+        }
+        if (messageId <= 0) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Message id must be specified.");
+        }
+        return ResponseEntity.ok(readReceiptService.getReaders(id, messageId));
+    }
+
+    // Users only move their own watermark, the user is the authenticated one
+    @ResponseStatus(HttpStatus.OK)
+    @PutMapping
+    @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
+    public void markRead(@PathVariable(value = "id") Long id,
+                         @RequestParam(value = "messageId") Long messageId,
+                         Authentication authentication) {
+        if (id <= 0) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "ChatRoom id must be specified.");
+        }
+        if (messageId <= 0) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Message id must be specified.");
+        }
+        readReceiptService.markRead(id, userService.getUserIdByUsername(authentication.getName()), messageId);
+    }
+}
@@ -0,0 +1,73 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.event.TypingEvent;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.ChatRoomService;
+import app.nss.webchat.service.TypingService;
+import app.nss.webchat.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+// Typing indicators are signed by the authenticated user, who must be a participant of the room. Membership and
+// the user id come from cached lookups, so indicators touch neither the message table nor Kafka. They carry
+// only the username and the kind of activity.
+@Slf4j
+@RestController
+@RequestMapping(path = "/chat-rooms/{id}/typing")
+public class TypingController {
+
+    private final TypingService typingService;
+    private final ChatRoomService chatRoomService;
+    private final UserService userService;
+
+    @Autowired
+    public TypingController(TypingService typingService, ChatRoomService chatRoomService, UserService userService) {
+        this.typingService = typingService;
+        this.chatRoomService = chatRoomService;
+        this.userService = userService;
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @GetMapping
+    @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
+    public ResponseEntity<List<TypingEvent>> getTyping(@PathVariable(value = "id") Long id,
+                                                       Authentication authentication) {
+        checkParticipant(id, authentication);
+        return ResponseEntity.ok(typingService.getTyping(id));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
+    public SseEmitter streamTyping(@PathVariable(value = "id") Long id, Authentication authentication) {
+        checkParticipant(id, authentication);
+        return typingService.subscribe(id, authentication.getName());
+    }
+
+    @ResponseStatus(HttpStatus.OK)
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ROLE_USER', 'ROLE_ADMIN')")
+    public void signalTyping(@PathVariable(value = "id") Long id,
+                             @RequestParam(value = "activity", defaultValue = "TYPING") TypingEvent.Activity activity,
+                             Authentication authentication) {
+        checkParticipant(id, authentication);
+        typingService.signal(id, authentication.getName(), activity);
+    }
+
+    private void checkParticipant(Long id, Authentication authentication) {
+        if (id <= 0) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "ChatRoom id must be specified.");
+        }
+        if (!chatRoomService.isParticipant(id, userService.getUserIdByUsername(authentication.getName()))) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Chat room does not contain this user.");
+        }
+    }
+}
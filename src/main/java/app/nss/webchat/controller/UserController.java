@@ -1,6 +1,7 @@
 package app.nss.webchat.controller;
 
 import app.nss.webchat.dto.request.UserRequest;
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.User;
 import app.nss.webchat.exception.ApplicationException;
 import app.nss.webchat.service.UserService;
@@ -11,6 +12,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+
 @Slf4j
 @RestController
 @RequestMapping(path = "/users")
@@ -98,10 +101,8 @@ public class UserController {
         if (id <= 0) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "User id must be specified.");
         }
-        if (userRequest.username() == null ||
-                userRequest.password() == null ||
-                userRequest.email() == null) {
-            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Username, password and email must be specified.");
+        if (userRequest.username() == null || userRequest.email() == null) {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Username and email must be specified.");
         }
         userService.updateUserById(id, userRequest.username(), userRequest.password(), userRequest.email());
         log.info("User {} has been successfully updated.", userRequest.username());
@@ -118,14 +119,16 @@ public class UserController {
         log.info("User status has been successfully updated.");
     }
 
-    @ResponseStatus(HttpStatus.OK)
+    // Messages, notifications and memberships of the user are removed by a background job
+    @ResponseStatus(HttpStatus.ACCEPTED)
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
-    public void deleteUserById(@PathVariable(value = "id") Long id) {
+    public ResponseEntity<CleanupJobResponse> deleteUserById(@PathVariable(value = "id") Long id) {
         if (id <= 0) {
             throw new ApplicationException(HttpStatus.NOT_FOUND, "User id must be specified.");
         }
-        userService.deleteUserById(id);
-        log.info("User has been successfully deleted.");
+        CleanupJobResponse job = userService.deleteUserById(id);
+        log.info("User deletion has been started as job {}.", job.id());
+        return ResponseEntity.accepted().location(URI.create("/cleanup-jobs/" + job.id())).body(job);
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package app.nss.webchat.controller.handler;
 
 import app.nss.webchat.dto.response.ErrorResponse;
 import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.exception.RateLimitException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,6 +37,15 @@ public class RestExceptionHandler extends ResponseEntityExceptionHandler {
         return httpResponse(APPLICATION_FIELD + ": " + ex.getMessage(), ex.getHttpStatus());
     }
 
+    // Retry-After is in whole seconds, rounded up so a client that waits that long is let through
+    @ExceptionHandler(value = {RateLimitException.class})
+    protected ResponseEntity<Object> rateLimitException(RateLimitException ex) {
+        long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(ex.getHttpStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(seconds))
+                .body(APPLICATION_FIELD + ": " + ex.getMessage());
+    }
+
     private ResponseEntity<Object> httpResponse(String msg, HttpStatus httpStatus) {
         return ResponseEntity.status(httpStatus).body(msg);
     }
@@ -0,0 +1,35 @@
+package app.nss.webchat.dto.event;
+
+import app.nss.webchat.entity.Message;
+
+import java.time.ZoneId;
+
+public record MessageEvent(
+        Type type,
+        Long messageId,
+        Long roomId,
+        Long senderId,
+        long timestamp, // epoch millis
+        String content
+) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static MessageEvent of(Type type, Message message) {
+        long timestamp = message.getTimeStamp() == null
+                ? System.currentTimeMillis()
+                : message.getTimeStamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new MessageEvent(
+                type,
+                message.getId(),
+                message.getRoom() == null ? null : message.getRoom().getId(),
+                message.getSender() == null ? null : message.getSender().getId(),
+                timestamp,
+                type == Type.DELETED ? null : message.getContent()
+        );
+    }
+}
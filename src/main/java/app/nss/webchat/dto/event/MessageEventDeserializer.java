@@ -0,0 +1,63 @@
+package app.nss.webchat.dto.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class MessageEventDeserializer implements Deserializer<MessageEvent> {
+
+    private static final MessageEvent.Type[] TYPES = MessageEvent.Type.values();
+
+    @Override
+    public MessageEvent deserialize(String topic, byte[] data) {
+        return data == null ? null : decode(data);
+    }
+
+    public static MessageEvent decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            byte version = buffer.get();
+            if (version != MessageEventSerializer.VERSION) {
+                throw new SerializationException("Unsupported message event version " + version + ".");
+            }
+            int type = buffer.get();
+            if (type < 0 || type >= TYPES.length) {
+                throw new SerializationException("Unknown message event type " + type + ".");
+            }
+            Long messageId = readNullable(buffer);
+            Long roomId = readNullable(buffer);
+            Long senderId = readNullable(buffer);
+            long timestamp = readVarLong(buffer);
+            long contentLength = readVarLong(buffer);
+            String content = null;
+            if (contentLength > 0) {
+                byte[] bytes = new byte[Math.toIntExact(contentLength - 1)];
+                buffer.get(bytes);
+                content = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return new MessageEvent(TYPES[type], messageId, roomId, senderId, timestamp, content);
+        } catch (BufferUnderflowException | ArithmeticException e) {
+            throw new SerializationException("Truncated message event.", e);
+        }
+    }
+
+    private static Long readNullable(ByteBuffer buffer) {
+        long value = readVarLong(buffer);
+        return value == 0 ? null : value - 1;
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in message event.");
+    }
+}
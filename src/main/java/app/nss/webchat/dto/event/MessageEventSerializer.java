@@ -0,0 +1,51 @@
+package app.nss.webchat.dto.event;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Version 1 layout: version byte, type byte, message/room/sender ids and the timestamp as unsigned varints
+ * (ids shifted by one so that 0 means null), then the UTF-8 content prefixed by its varint length
+ * (shifted by one as well, 0 means null).
+ */
+public class MessageEventSerializer implements Serializer<MessageEvent> {
+
+    public static final byte VERSION = 1;
+
+    @Override
+    public byte[] serialize(String topic, MessageEvent event) {
+        return event == null ? null : encode(event);
+    }
+
+    public static byte[] encode(MessageEvent event) {
+        byte[] content = event.content() == null ? null : event.content().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + (content == null ? 0 : content.length));
+        out.write(VERSION);
+        out.write(event.type().ordinal());
+        writeNullable(out, event.messageId());
+        writeNullable(out, event.roomId());
+        writeNullable(out, event.senderId());
+        writeVarLong(out, event.timestamp());
+        if (content == null) {
+            writeVarLong(out, 0);
+        } else {
+            writeVarLong(out, content.length + 1L);
+            out.write(content, 0, content.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeNullable(ByteArrayOutputStream out, Long value) {
+        writeVarLong(out, value == null ? 0 : value + 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
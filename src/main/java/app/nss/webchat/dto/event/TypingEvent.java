@@ -0,0 +1,17 @@
+package app.nss.webchat.dto.event;
+
+import java.io.Serializable;
+
+public record TypingEvent(
+        Activity activity,
+        Long roomId,
+        String username,
+        long timestamp // epoch millis
+) implements Serializable {
+
+    public enum Activity {
+        TYPING,
+        ACTIVE,
+        STOPPED
+    }
+}
@@ -10,6 +10,9 @@ public record MessageRequest(
         Long senderId,
         String content,
         @JsonProperty("time_stamp")
-        LocalDateTime timeStamp
+        LocalDateTime timeStamp,
+        // Optional, a retry with the same key from the same sender returns the first message instead of a new one
+        @JsonProperty("idempotency_key")
+        String idempotencyKey
 ) {
 }
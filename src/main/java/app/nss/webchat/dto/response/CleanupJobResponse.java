@@ -0,0 +1,22 @@
+package app.nss.webchat.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+public record CleanupJobResponse(
+        String id,
+        String target,
+        Long targetId,
+        String state,
+        long participantsDeleted,
+        long messagesDeleted,
+        long notificationsDeleted,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime startedAt,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+        LocalDateTime finishedAt,
+        String error
+) implements Serializable {
+}
@@ -0,0 +1,12 @@
+package app.nss.webchat.dto.response;
+
+public record ImportResponse(
+        String importId,
+        String table,
+        long resumedAt,
+        long imported,
+        long totalRows,
+        double seconds,
+        long rowsPerSecond
+) {
+}
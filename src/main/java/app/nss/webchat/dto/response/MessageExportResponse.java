@@ -0,0 +1,15 @@
+package app.nss.webchat.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+public record MessageExportResponse(
+        Long id,
+        String content,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm")
+        LocalDateTime timeStamp,
+        Long senderId,
+        Long roomId
+) {
+}
@@ -0,0 +1,16 @@
+package app.nss.webchat.dto.response;
+
+import app.nss.webchat.entity.NotificationStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+public record NotificationExportResponse(
+        Long id,
+        String content,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm")
+        LocalDateTime timeStamp,
+        NotificationStatus status,
+        Long recipientId
+) {
+}
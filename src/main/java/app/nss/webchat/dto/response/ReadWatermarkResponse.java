@@ -0,0 +1,8 @@
+package app.nss.webchat.dto.response;
+
+public record ReadWatermarkResponse(
+        Long roomId,
+        Long userId,
+        Long lastReadMessageId
+) {
+}
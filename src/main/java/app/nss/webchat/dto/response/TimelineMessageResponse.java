@@ -0,0 +1,17 @@
+package app.nss.webchat.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+// Same fields as the serialized Message entity plus the sender details that used to need a join
+public record TimelineMessageResponse(
+        Long id,
+        String content,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm")
+        LocalDateTime timeStamp,
+        Long senderId,
+        String senderUsername,
+        String senderAvatar
+) {
+}
@@ -21,7 +21,7 @@ public class ChatRoom {
     @Column(name = "id", nullable = false)
     private Long id;
 
-    @Column(name = "name", nullable = false)
+    @Column(name = "name", nullable = false, unique = true)
     @Size(max = 15, min = 2, message = "Your room name should be greater than 2 and less than 15")
     private String name;
 
@@ -34,7 +34,9 @@ public class ChatRoom {
     @JoinTable(
             name = "participants",
             joinColumns = @JoinColumn(name = "chat_room_id"),
-            inverseJoinColumns = @JoinColumn(name = "user_id")
+            inverseJoinColumns = @JoinColumn(name = "user_id"),
+            uniqueConstraints = @UniqueConstraint(columnNames = {"chat_room_id", "user_id"}),
+            indexes = @Index(name = "participants_user_idx", columnList = "user_id")
     )
     @ToString.Exclude
     private List<User> participants;
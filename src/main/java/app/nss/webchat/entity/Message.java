@@ -15,7 +15,11 @@ import java.time.LocalDateTime;
 @Setter
 @ToString
 @Entity
-@Table(name = "message")
+@Table(name = "message", indexes = {
+        @Index(name = "message_room_time_stamp_idx", columnList = "room, time_stamp"),
+        @Index(name = "message_sender_time_stamp_idx", columnList = "sender, time_stamp")
+})
+@NamedEntityGraph(name = "Message.sender", attributeNodes = @NamedAttributeNode("sender"))
 public class Message {
 
     @Id
@@ -33,12 +37,14 @@ public class Message {
     private LocalDateTime timeStamp;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sender", nullable = false)
+    @ToString.Exclude
     private User sender;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "room", nullable = false)
+    @ToString.Exclude
     private ChatRoom room;
 }
@@ -15,7 +15,8 @@ import java.time.LocalDateTime;
 @Setter
 @ToString
 @Entity
-@Table(name = "notification")
+@Table(name = "notification", indexes = @Index(name = "notification_recipient_status_idx",
+        columnList = "recipient, status"))
 public class Notification {
 
     @Enumerated(EnumType.STRING)
@@ -36,7 +37,8 @@ public class Notification {
     private LocalDateTime timeStamp;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "recipient", nullable = false)
+    @ToString.Exclude
     private User recipient;
 }
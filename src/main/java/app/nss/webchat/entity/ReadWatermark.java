@@ -0,0 +1,52 @@
+package app.nss.webchat.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// The last message a user has read in a room, so a read receipt is one row per user and room instead of one
+// per message and reader. Written by ReadReceiptService, the foreign keys in db/migration cascade deletes.
+@Getter
+@Setter
+@ToString
+@Entity
+@IdClass(ReadWatermark.Key.class)
+@Table(name = "read_watermark", indexes = @Index(name = "read_watermark_room_idx", columnList = "room_id"))
+public class ReadWatermark {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Id
+    @Column(name = "room_id", nullable = false)
+    private Long roomId;
+
+    @Column(name = "last_read_message_id", nullable = false)
+    private Long lastReadMessageId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+
+        private Long userId;
+        private Long roomId;
+    }
+}
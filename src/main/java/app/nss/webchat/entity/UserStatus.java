@@ -2,5 +2,6 @@ package app.nss.webchat.entity;
 
 public enum UserStatus {
     ONLINE,
-    OFFLINE
+    OFFLINE,
+    DELETED
 }
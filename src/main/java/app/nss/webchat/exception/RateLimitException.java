@@ -0,0 +1,18 @@
+package app.nss.webchat.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class RateLimitException extends ApplicationException {
+    private final Duration retryAfter;
+
+    public RateLimitException(String message, Duration retryAfter) {
+        super(HttpStatus.TOO_MANY_REQUESTS, message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -2,9 +2,11 @@ package app.nss.webchat.repository;
 
 import app.nss.webchat.entity.ChatRoom;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -23,4 +25,28 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
 
     @Query(value = "SELECT CASE WHEN COUNT(c) > 0 THEN true ELSE false END FROM ChatRoom AS c JOIN c.participants AS p WHERE c.id = :roomId AND p.id = :userId")
     boolean containsUserInRoom(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    @Query(value = "SELECT c.id FROM ChatRoom AS c")
+    List<Long> findAllIds();
+
+    // Single-row statements on the join table, so membership changes never load ChatRoom.participants
+    @Modifying
+    @Query(value = "INSERT INTO participants (chat_room_id, user_id) VALUES (:roomId, :userId) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    int insertParticipant(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM participants WHERE chat_room_id = :roomId AND user_id = :userId", nativeQuery = true)
+    int deleteParticipant(@Param("roomId") Long roomId, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM participants WHERE chat_room_id = :roomId AND user_id IN "
+            + "(SELECT user_id FROM participants WHERE chat_room_id = :roomId LIMIT :limit)", nativeQuery = true)
+    int deleteParticipantsChunk(@Param("roomId") Long roomId, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM participants WHERE user_id = :userId", nativeQuery = true)
+    int deleteMemberships(@Param("userId") Long userId);
 }
@@ -1,12 +1,20 @@
 package app.nss.webchat.repository;
 
+import app.nss.webchat.dto.response.MessageExportResponse;
 import app.nss.webchat.entity.Message;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
@@ -16,12 +24,35 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findAllBySenderIdOrderByTimeStampDesc(Long userId);
 
 
-    @Query(value = "SELECT m FROM Message AS m WHERE m.room.id = :id ORDER BY m.timeStamp ASC")
-    List<Message> findAllForChatWithIdOrderByTimeStampAsc(Long id);
+    @EntityGraph("Message.sender")
+    @Query(value = "SELECT m FROM Message AS m WHERE m.room.id = :id ORDER BY m.timeStamp ASC, m.id ASC")
+    List<Message> findTimelineForChat(@Param("id") Long id);
 
-    @Query("SELECT m FROM Message AS m WHERE LOWER(m.content) LIKE %:keyword%")
+    // ILIKE instead of LOWER(...) LIKE, so the trigram index on content serves it
+    @Query("SELECT m FROM Message AS m WHERE m.content ILIKE %:keyword%")
     List<Message> findAllMessagesByKeyword(@Param("keyword") String keyword);
 
     @Query("SELECT CASE WHEN COUNT(m) > 0 THEN TRUE ELSE FALSE END FROM Message m WHERE m.id = :messageId AND m.sender.id = :senderId")
     boolean existsMessageByIdAndSenderId(@Param("messageId") Long messageId, @Param("senderId") Long senderId);
+
+    @Query("SELECT CASE WHEN COUNT(m) > 0 THEN TRUE ELSE FALSE END FROM Message m WHERE m.id = :messageId AND m.room.id = :roomId")
+    boolean existsMessageByIdAndRoomId(@Param("messageId") Long messageId, @Param("roomId") Long roomId);
+
+    // Read through a cursor into unmanaged rows, so neither the result list nor the persistence context grows
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new app.nss.webchat.dto.response.MessageExportResponse(m.id, m.content, m.timeStamp, m.sender.id, m.room.id) FROM Message AS m ORDER BY m.id")
+    Stream<MessageExportResponse> streamAllForExport();
+
+    // Chunked set-based deletes, each in its own short transaction, so cleanup never holds locks on a whole room
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM message WHERE id IN (SELECT id FROM message WHERE room = :roomId LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkByRoom(@Param("roomId") Long roomId, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM message WHERE id IN (SELECT id FROM message WHERE sender = :senderId LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkBySender(@Param("senderId") Long senderId, @Param("limit") int limit);
 }
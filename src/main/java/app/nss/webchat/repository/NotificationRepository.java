@@ -1,14 +1,20 @@
 package app.nss.webchat.repository;
 
+import app.nss.webchat.dto.response.NotificationExportResponse;
 import app.nss.webchat.entity.Notification;
 import app.nss.webchat.entity.NotificationStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -21,5 +27,13 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
                       @Param("oldStatus") NotificationStatus oldStatus,
                       @Param("recipientId") Long recipientId);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new app.nss.webchat.dto.response.NotificationExportResponse(n.id, n.content, n.timeStamp, n.status, n.recipient.id) FROM Notification AS n ORDER BY n.id")
+    Stream<NotificationExportResponse> streamAllForExport();
 
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM notification WHERE id IN "
+            + "(SELECT id FROM notification WHERE recipient = :recipientId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByRecipient(@Param("recipientId") Long recipientId, @Param("limit") int limit);
 }
@@ -0,0 +1,29 @@
+package app.nss.webchat.repository;
+
+import app.nss.webchat.entity.ReadWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ReadWatermarkRepository extends JpaRepository<ReadWatermark, ReadWatermark.Key> {
+
+    List<ReadWatermark> findAllByRoomId(Long roomId);
+
+    // Watermarks only move forward, also when flushes from several nodes overlap
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO read_watermark (user_id, room_id, last_read_message_id, updated_at) "
+            + "VALUES (:userId, :roomId, :messageId, :updatedAt) "
+            + "ON CONFLICT (user_id, room_id) DO UPDATE SET "
+            + "last_read_message_id = GREATEST(read_watermark.last_read_message_id, EXCLUDED.last_read_message_id), "
+            + "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int upsert(@Param("userId") Long userId, @Param("roomId") Long roomId, @Param("messageId") Long messageId,
+               @Param("updatedAt") LocalDateTime updatedAt);
+}
@@ -1,16 +1,18 @@
 package app.nss.webchat.service;
 
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.ChatRoom;
-import app.nss.webchat.entity.User;
 import app.nss.webchat.exception.ApplicationException;
 import app.nss.webchat.repository.ChatRoomRepository;
 import app.nss.webchat.repository.UserRepository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
 
 import java.util.List;
 import java.util.Objects;
@@ -20,19 +22,24 @@ public class ChatRoomService {
 
     private final ChatRoomRepository chatRoomRepository;
     private final UserRepository userRepository;
+    private final CleanupService cleanupService;
 
     @Autowired
     public ChatRoomService(ChatRoomRepository chatRoomRepository,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           CleanupService cleanupService) {
         this.chatRoomRepository = chatRoomRepository;
         this.userRepository = userRepository;
+        this.cleanupService = cleanupService;
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public List<ChatRoom> getChatRooms() {
         return chatRoomRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public ChatRoom getChatRoomById(Long id) {
         return chatRoomRepository.findById(id).orElseThrow(
@@ -40,6 +47,7 @@ public class ChatRoomService {
         );
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public ChatRoom getChatRoomByName(String name) {
         ChatRoom room = chatRoomRepository.findByName(name);
@@ -49,11 +57,13 @@ public class ChatRoomService {
         return room;
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public List<ChatRoom> getAllChatRoomsByUserName(String name) {
         return chatRoomRepository.findAllByParticipantsUsername(name);
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public List<ChatRoom> getChatRoomsBySpecificMessage(String message) {
         List<ChatRoom> room = chatRoomRepository.findBySpecificMessage(message);
@@ -64,6 +74,7 @@ public class ChatRoomService {
         return room;
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "chatRoomsCache", key = "{#root.methodName, #root.args}")
     public List<ChatRoom> getChatRoomsBySpecificParticipant(String participant) {
         List<ChatRoom> room = chatRoomRepository.findBySpecificParticipant(participant);
@@ -74,7 +85,16 @@ public class ChatRoomService {
         return room;
     }
 
+    // Read on the primary and evicted by every membership change, so a cached answer is never older than the
+    // participants table
+    @Transactional
+    @Cacheable(value = "membershipCache", key = "{#roomId, #userId}")
+    public boolean isParticipant(Long roomId, Long userId) {
+        return chatRoomRepository.containsUserInRoom(roomId, userId);
+    }
+
     @CachePut(value = "chatRoomsCache", key = "#result.id")
+    @Transactional
     public ChatRoom createChatRoom(String name, String description) {
         ChatRoom room = new ChatRoom();
         if (name.isEmpty() || description.isEmpty()) {
@@ -85,24 +105,22 @@ public class ChatRoomService {
         return chatRoomRepository.save(room);
     }
 
-    @CacheEvict(value = "chatRoomsCache", key = "#id")
+    @Caching(evict = {
+            @CacheEvict(value = "chatRoomsCache", key = "#id"),
+            @CacheEvict(value = "membershipCache", key = "{#id, #userId}")
+    })
     @CachePut(value = "chatRoomsCache", key = "#id")
+    @Transactional
     public void addParticipant(long id, Long userId) {
-        ChatRoom room = chatRoomRepository.findById(id).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.")
-        );
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + userId + " not found.")
-        );
-        if (room.getParticipants().contains(user)) {
+        checkRoomAndUser(id, userId);
+        if (chatRoomRepository.insertParticipant(id, userId) == 0) {
             throw new ApplicationException(HttpStatus.BAD_REQUEST, "User is already in this room.");
         }
-        room.getParticipants().add(user);
-        chatRoomRepository.save(room);
     }
 
     @CacheEvict(value = "chatRoomsCache", key = "#id")
     @CachePut(value = "chatRoomsCache", key = "#id")
+    @Transactional
     public void updateChatRoom(Long id, String name, String description) {
         ChatRoom room = chatRoomRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.")
@@ -123,25 +141,32 @@ public class ChatRoomService {
     }
 
     @CacheEvict(value = "chatRoomsCache", key = "#id")
-    public void deleteChatRoom(Long id) {
-        ChatRoom room = chatRoomRepository.findById(id).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.")
-        );
-        chatRoomRepository.delete(room);
+    @Transactional
+    public CleanupJobResponse deleteChatRoom(Long id) {
+        if (!chatRoomRepository.existsById(id)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.");
+        }
+        return cleanupService.deleteRoom(id);
     }
 
-    @CacheEvict(value = "chatRoomsCache", key = "#id")
+    @Caching(evict = {
+            @CacheEvict(value = "chatRoomsCache", key = "#id"),
+            @CacheEvict(value = "membershipCache", key = "{#id, #userId}")
+    })
+    @Transactional
     public void deleteParticipant(long id, long userId) {
-        ChatRoom room = chatRoomRepository.findById(id).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.")
-        );
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + id + " not found.")
-        );
-        if (!room.getParticipants().contains(user)) {
+        checkRoomAndUser(id, userId);
+        if (chatRoomRepository.deleteParticipant(id, userId) == 0) {
             throw new ApplicationException(HttpStatus.BAD_REQUEST, "User is not in this room.");
         }
-        room.getParticipants().remove(user);
-        chatRoomRepository.save(room);
+    }
+
+    private void checkRoomAndUser(long id, Long userId) {
+        if (!chatRoomRepository.existsById(id)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + id + " not found.");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + userId + " not found.");
+        }
     }
 }
@@ -0,0 +1,282 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.CleanupJobResponse;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ChatRoomRepository;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import app.nss.webchat.repository.UserRepository;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+// Removes rooms and users together with their messages, notifications and memberships. Rows are deleted with
+// set-based statements in chunks that commit on their own, so no transaction grows with the size of a room and
+// no rows are loaded into memory. Rooms and users are cleaned up by background jobs that report their progress.
+// A job runs on the node that started it, its progress is copied to a Hazelcast map after every chunk, so any
+// node can answer for it. A job whose node went down stays in its last state until the retention ends.
+@Slf4j
+@Service
+public class CleanupService {
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    static final String JOBS_MAP = "cleanup-jobs";
+    private static final List<String> CACHES = List.of("chatRoomsCache", "messagesCache", "usersCache",
+            "notificationsCache", "membershipCache", "userIdsCache");
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final MessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final RoomTimelineService roomTimelineService;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final int chunkRows;
+    private final Duration retention;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final IMap<String, CleanupJobResponse> clusterJobs;
+
+    @Autowired
+    public CleanupService(ChatRoomRepository chatRoomRepository, MessageRepository messageRepository,
+                          NotificationRepository notificationRepository, UserRepository userRepository,
+                          RoomTimelineService roomTimelineService, CacheManager cacheManager,
+                          PlatformTransactionManager transactionManager,
+                          ObjectProvider<HazelcastInstance> hazelcastInstance,
+                          @Value("${app.cleanup.chunk-rows:5000}") int chunkRows,
+                          @Value("${app.cleanup.retention:PT24H}") Duration retention) {
+        // One job at a time, so cleanups queue up instead of competing with each other for the database
+        this(chatRoomRepository, messageRepository, notificationRepository, userRepository, roomTimelineService,
+                cacheManager, transactionManager, Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "cleanup");
+                    thread.setDaemon(true);
+                    return thread;
+                }), chunkRows, retention, clusterJobs(hazelcastInstance.getIfAvailable()));
+    }
+
+    CleanupService(ChatRoomRepository chatRoomRepository, MessageRepository messageRepository,
+                   NotificationRepository notificationRepository, UserRepository userRepository,
+                   RoomTimelineService roomTimelineService, CacheManager cacheManager,
+                   PlatformTransactionManager transactionManager, Executor executor, int chunkRows,
+                   Duration retention, IMap<String, CleanupJobResponse> clusterJobs) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.messageRepository = messageRepository;
+        this.notificationRepository = notificationRepository;
+        this.userRepository = userRepository;
+        this.roomTimelineService = roomTimelineService;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.chunkRows = chunkRows;
+        this.retention = retention;
+        this.clusterJobs = clusterJobs;
+    }
+
+    private static IMap<String, CleanupJobResponse> clusterJobs(HazelcastInstance hazelcastInstance) {
+        return hazelcastInstance != null ? hazelcastInstance.getMap(JOBS_MAP) : null;
+    }
+
+    public CleanupJobResponse deleteRoom(Long roomId) {
+        return start("room", roomId, job -> {
+            drain(job, () -> chatRoomRepository.deleteParticipantsChunk(roomId, chunkRows), job.participants);
+            drain(job, () -> messageRepository.deleteChunkByRoom(roomId, chunkRows), job.messages);
+            // Rows added since the last chunk go together with the room, so no foreign key is left dangling
+            transactionTemplate.executeWithoutResult(status -> {
+                drain(job, () -> chatRoomRepository.deleteParticipantsChunk(roomId, chunkRows), job.participants);
+                drain(job, () -> messageRepository.deleteChunkByRoom(roomId, chunkRows), job.messages);
+                chatRoomRepository.deleteById(roomId);
+            });
+            roomTimelineService.invalidateCluster(roomId);
+        });
+    }
+
+    public CleanupJobResponse deleteUser(Long userId) {
+        return start("user", userId, job -> {
+            drain(job, () -> notificationRepository.deleteChunkByRecipient(userId, chunkRows), job.notifications);
+            drain(job, () -> messageRepository.deleteChunkBySender(userId, chunkRows), job.messages);
+            transactionTemplate.executeWithoutResult(status -> {
+                job.participants.addAndGet(chatRoomRepository.deleteMemberships(userId));
+                drain(job, () -> notificationRepository.deleteChunkByRecipient(userId, chunkRows), job.notifications);
+                drain(job, () -> messageRepository.deleteChunkBySender(userId, chunkRows), job.messages);
+                userRepository.deleteById(userId);
+            });
+            // The user's messages may be in any room
+            roomTimelineService.invalidateCluster();
+        });
+    }
+
+    // Runs in the calling thread, notifications of one user are removed quickly enough in chunks. A transaction of
+    // the caller is suspended, so every chunk still commits on its own.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long deleteNotifications(Long userId) {
+        AtomicLong deleted = new AtomicLong();
+        drain(() -> notificationRepository.deleteChunkByRecipient(userId, chunkRows), deleted, () -> { });
+        clearCache("notificationsCache");
+        return deleted.get();
+    }
+
+    // Jobs of this node are answered from memory, the others from the cluster copy
+    public CleanupJobResponse getJob(String id) {
+        Job job = jobs.get(id);
+        if (job != null) {
+            return job.response();
+        }
+        CleanupJobResponse response = clusterJobs != null ? clusterJobs.get(id) : null;
+        if (response == null) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Cleanup job " + id + " not found.");
+        }
+        return response;
+    }
+
+    public List<CleanupJobResponse> getJobs() {
+        Map<String, CleanupJobResponse> responses = new HashMap<>();
+        if (clusterJobs != null) {
+            clusterJobs.values().forEach(response -> responses.put(response.id(), response));
+        }
+        jobs.values().forEach(job -> responses.put(job.id, job.response()));
+        return responses.values().stream()
+                .sorted(Comparator.comparing(CleanupJobResponse::id))
+                .toList();
+    }
+
+    // A target has at most one active job, asking again for it returns that job instead of starting another
+    private CleanupJobResponse start(String target, Long targetId, Consumer<Job> work) {
+        removeExpired();
+        String id = target + "-" + targetId;
+        Job job = jobs.compute(id, (key, existing) -> {
+            if (existing != null && existing.state != State.DONE && existing.state != State.FAILED) {
+                return existing;
+            }
+            Job created = new Job(key, target, targetId);
+            executor.execute(() -> run(created, work));
+            return created;
+        });
+        share(job);
+        return job.response();
+    }
+
+    private void run(Job job, Consumer<Job> work) {
+        job.startedAt = LocalDateTime.now();
+        job.state = State.RUNNING;
+        share(job);
+        State result;
+        try {
+            work.accept(job);
+            result = State.DONE;
+            log.info("Cleanup job {} deleted {} participants, {} messages and {} notifications.", job.id,
+                    job.participants.get(), job.messages.get(), job.notifications.get());
+        } catch (RuntimeException e) {
+            // Every finished chunk stays committed, running the job again continues where this one stopped
+            job.error = e.getMessage();
+            result = State.FAILED;
+            log.error("Cleanup job {} failed: {}", job.id, e.getMessage());
+        }
+        CACHES.forEach(this::clearCache);
+        job.finishedAt = LocalDateTime.now();
+        // Set last, so a finished job is only reported once everything above is visible
+        job.state = result;
+        share(job);
+    }
+
+    private void drain(Job job, IntSupplier chunk, AtomicLong deleted) {
+        drain(chunk, deleted, () -> share(job));
+    }
+
+    // Expires with the retention, so jobs of nodes that went down do not stay forever
+    private void share(Job job) {
+        if (clusterJobs == null) {
+            return;
+        }
+        try {
+            clusterJobs.set(job.id, job.response(), retention.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            log.warn("Could not share the progress of cleanup job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private void drain(IntSupplier chunk, AtomicLong deleted, Runnable afterChunk) {
+        int rows;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Cleanup was interrupted.");
+            }
+            rows = chunk.getAsInt();
+            deleted.addAndGet(rows);
+            afterChunk.run();
+        } while (rows >= chunkRows);
+    }
+
+    private void clearCache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void removeExpired() {
+        LocalDateTime limit = LocalDateTime.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(limit));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static final class Job {
+
+        private final String id;
+        private final String target;
+        private final Long targetId;
+        private final AtomicLong participants = new AtomicLong();
+        private final AtomicLong messages = new AtomicLong();
+        private final AtomicLong notifications = new AtomicLong();
+        private volatile State state = State.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+
+        Job(String id, String target, Long targetId) {
+            this.id = id;
+            this.target = target;
+            this.targetId = targetId;
+        }
+
+        CleanupJobResponse response() {
+            return new CleanupJobResponse(id, target, targetId, state.name(), participants.get(), messages.get(),
+                    notifications.get(), startedAt, finishedAt, error);
+        }
+    }
+}
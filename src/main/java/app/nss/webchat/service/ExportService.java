@@ -0,0 +1,81 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.MessageExportResponse;
+import app.nss.webchat.dto.response.NotificationExportResponse;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Writes whole tables as newline-delimited JSON while they are read, so memory use does not depend on their size
+@Slf4j
+@Service
+public class ExportService {
+
+    public static final MediaType GZIP = new MediaType("application", "gzip");
+    private static final int FLUSH_EVERY = 500;
+
+    private final MessageRepository messageRepository;
+    private final NotificationRepository notificationRepository;
+    private final ObjectWriter writer;
+
+    @Autowired
+    public ExportService(MessageRepository messageRepository, NotificationRepository notificationRepository,
+                         ObjectMapper objectMapper) {
+        this.messageRepository = messageRepository;
+        this.notificationRepository = notificationRepository;
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    // The transaction keeps the database cursor open, which is what makes the fetch size take effect
+    @Transactional(readOnly = true)
+    public long exportMessages(OutputStream out, boolean gzip) throws IOException {
+        try (Stream<MessageExportResponse> rows = messageRepository.streamAllForExport()) {
+            long count = write(rows, out, gzip);
+            log.info("Exported {} messages.", count);
+            return count;
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long exportNotifications(OutputStream out, boolean gzip) throws IOException {
+        try (Stream<NotificationExportResponse> rows = notificationRepository.streamAllForExport()) {
+            long count = write(rows, out, gzip);
+            log.info("Exported {} notifications.", count);
+            return count;
+        }
+    }
+
+    private long write(Stream<?> rows, OutputStream out, boolean gzip) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, 8192) : null;
+        JsonGenerator generator = writer.getFactory().createGenerator(compressed != null ? compressed : out);
+        generator.setRootValueSeparator(null);
+        long count = 0;
+        for (Iterator<?> iterator = rows.iterator(); iterator.hasNext(); ) {
+            writer.writeValue(generator, iterator.next());
+            generator.writeRaw('\n');
+            // Hands finished rows to the client regularly instead of only when the buffers fill up
+            if (++count % FLUSH_EVERY == 0) {
+                generator.flush();
+            }
+        }
+        generator.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,148 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Remembers which message each idempotency key produced, so a client retrying a send gets the first message
+// back instead of a second row and a second event. Keys live in two generations that rotate every window, which
+// keeps a key for one to two windows without tracking its age. A retry that arrives while the first attempt
+// is still running waits for it.
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    public record Result(Message message, boolean replayed) {
+    }
+
+    private final MessageService messageService;
+    private final int maxKeys;
+    private final Duration waitTimeout;
+    private final Counter replayedCounter;
+    private volatile Map<String, Attempt> current = new ConcurrentHashMap<>();
+    private volatile Map<String, Attempt> previous = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IdempotencyService(MessageService messageService, MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.max-keys:100000}") int maxKeys,
+                              @Value("${app.idempotency.wait-timeout:PT5S}") Duration waitTimeout) {
+        this.messageService = messageService;
+        this.maxKeys = maxKeys;
+        this.waitTimeout = waitTimeout;
+        this.replayedCounter = Counter.builder("message.idempotency.replayed").register(meterRegistry);
+    }
+
+    // The event is published as part of the attempt. When publishing fails the key stays, and the retry returns
+    // the message that was already saved and publishes its event instead of saving a second one.
+    public Result sendOnce(Long senderId, String key, Supplier<Message> send, Consumer<Message> publish) {
+        if (key == null || key.isEmpty()) {
+            Message message = send.get();
+            publish.accept(message);
+            return new Result(message, false);
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST,
+                    "Idempotency key must be at most " + MAX_KEY_LENGTH + " characters.");
+        }
+        // Keys are per sender, so clients do not need globally unique keys and cannot hit each other's
+        String scopedKey = senderId + ":" + key;
+        Attempt attempt = new Attempt();
+        Map<String, Attempt> generation = current;
+        Attempt first = previous.get(scopedKey);
+        if (first == null) {
+            first = generation.putIfAbsent(scopedKey, attempt);
+        }
+        if (first == null) {
+            // A rotation between the two lookups moves the key of an earlier attempt into previous
+            Attempt rotated = previous.get(scopedKey);
+            if (rotated != null && rotated != attempt) {
+                generation.remove(scopedKey, attempt);
+                first = rotated;
+            }
+        }
+        if (first != null) {
+            replayedCounter.increment();
+            // The first attempt may have committed a moment ago, the replica and the cache may not have it yet
+            Message message = messageService.getMessageFromPrimary(await(first));
+            first.publishOnce(message, publish);
+            return new Result(message, true);
+        }
+        if (current.size() > maxKeys) {
+            rotateWhenFull();
+        }
+        Message message;
+        try {
+            message = send.get();
+        } catch (RuntimeException e) {
+            // Nothing was sent, so the next retry gets to try again
+            current.remove(scopedKey, attempt);
+            previous.remove(scopedKey, attempt);
+            attempt.messageId.completeExceptionally(e);
+            throw e;
+        }
+        attempt.messageId.complete(message.getId());
+        attempt.publishOnce(message, publish);
+        return new Result(message, false);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.window:PT10M}")
+    public synchronized void rotate() {
+        previous = current;
+        current = new ConcurrentHashMap<>();
+    }
+
+    // Bounds memory during bursts, keys then live for less than a window
+    private synchronized void rotateWhenFull() {
+        if (current.size() > maxKeys) {
+            rotate();
+        }
+    }
+
+    private Long await(Attempt first) {
+        try {
+            return first.messageId.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        } catch (TimeoutException | ExecutionException | CancellationException e) {
+            throw inProgress();
+        }
+    }
+
+    private static ApplicationException inProgress() {
+        return new ApplicationException(HttpStatus.CONFLICT,
+                "The message with this idempotency key was not sent yet, please try again.");
+    }
+
+    private static final class Attempt {
+
+        private final CompletableFuture<Long> messageId = new CompletableFuture<>();
+        private boolean published;
+
+        // A concurrent retry waits for the publish in progress, and tries itself if that one failed
+        private synchronized void publishOnce(Message message, Consumer<Message> publish) {
+            if (!published) {
+                publish.accept(message);
+                published = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,621 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.ImportResponse;
+import app.nss.webchat.entity.Role;
+import app.nss.webchat.entity.UserStatus;
+import app.nss.webchat.exception.ApplicationException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Bulk loads users, rooms, participants and messages from NDJSON or CSV. Input is parsed one row at a time and
+// written in chunks, on Postgres through COPY. Each chunk commits together with its checkpoint, so an interrupted
+// import continues after the last committed row when the same input is sent again with the same import id.
+@Slf4j
+@Service
+public class ImportService {
+
+    // Hibernate's pooled optimizer hands out the ids below each value it reads from a sequence
+    private static final int ID_ALLOCATION_SIZE = 50;
+    private static final int BATCH_SIZE = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    private final DataSource dataSource;
+    private final CacheManager cacheManager;
+    private final RoomTimelineService roomTimelineService;
+    private final ObjectMapper objectMapper;
+    private final int chunkRows;
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ImportService(DataSource dataSource, CacheManager cacheManager, RoomTimelineService roomTimelineService,
+                         ObjectMapper objectMapper, @Value("${app.import.chunk-rows:50000}") int chunkRows) {
+        this.dataSource = dataSource;
+        this.cacheManager = cacheManager;
+        this.roomTimelineService = roomTimelineService;
+        this.objectMapper = objectMapper;
+        this.chunkRows = chunkRows;
+    }
+
+    public ImportResponse importRows(String importId, Table table, Format format, InputStream input, long idOffset) {
+        String checkpointId = importId + ":" + table.name().toLowerCase(Locale.ROOT);
+        if (!running.add(checkpointId)) {
+            throw new ApplicationException(HttpStatus.CONFLICT, "Import " + importId + " of " + table.label()
+                    + " is already running.");
+        }
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection();
+             RowReader reader = format == Format.CSV ? new CsvReader(input, table) : new NdjsonReader(input, table)) {
+            connection.setAutoCommit(false);
+            long resumedAt = readCheckpoint(connection, checkpointId);
+            long reserved = table.sequence != null ? reservedIds(connection, table) : Long.MIN_VALUE;
+            connection.commit();
+            long done = 0;
+            while (done < resumedAt && reader.next() != null) {
+                done++;
+            }
+
+            int rows = chunkRows;
+            while (rows == chunkRows) {
+                rows = 0;
+                RowWriter writer = connection.isWrapperFor(PGConnection.class)
+                        ? new CopyWriter(connection.unwrap(PGConnection.class), table)
+                        : new BatchWriter(connection, table);
+                try {
+                    String[] values;
+                    while (rows < chunkRows && (values = reader.next()) != null) {
+                        Object[] row = table.convert(values, idOffset);
+                        if (table.sequence != null && (Long) row[0] <= reserved) {
+                            throw new IllegalArgumentException("id " + row[0] + " is not above " + reserved
+                                    + ", the application may already have handed out the ids up to it. Choose an "
+                                    + "idOffset that moves every id above " + reserved);
+                        }
+                        writer.write(row);
+                        rows++;
+                    }
+                    writer.finish();
+                    if (rows > 0) {
+                        saveCheckpoint(connection, checkpointId, done + rows);
+                        if (table.sequence != null) {
+                            adjustSequence(connection, table);
+                        }
+                    }
+                    connection.commit();
+                } catch (IllegalArgumentException | IOException e) {
+                    writer.abort();
+                    connection.rollback();
+                    throw new ApplicationException(HttpStatus.BAD_REQUEST, "Row " + (done + rows + 1) + " of "
+                            + table.label() + " is invalid: " + e.getMessage() + resumeHint(importId, done));
+                } catch (SQLException e) {
+                    writer.abort();
+                    connection.rollback();
+                    throw new ApplicationException(HttpStatus.CONFLICT, "Rows " + (done + 1) + "-" + (done + rows)
+                            + " of " + table.label() + " were rejected: " + e.getMessage() + resumeHint(importId, done));
+                }
+                done += rows;
+            }
+            invalidateCaches(table);
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long imported = Math.max(0, done - resumedAt);
+            log.info("Import {} loaded {} {} rows in {} s, resumed at row {}.",
+                    importId, imported, table.label(), String.format("%.1f", seconds), resumedAt);
+            return new ImportResponse(importId, table.label(), resumedAt, imported, done, seconds,
+                    seconds > 0 ? Math.round(imported / seconds) : imported);
+        } catch (SQLException | IOException e) {
+            throw new ApplicationException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Import " + importId + " of " + table.label() + " failed: " + e.getMessage());
+        } finally {
+            running.remove(checkpointId);
+        }
+    }
+
+    private static String resumeHint(String importId, long done) {
+        return (done == 0 ? ". No rows are imported" : ". Rows 1-" + done + " are imported")
+                + ", send the same input with import id " + importId + " to continue.";
+    }
+
+    private static long readCheckpoint(Connection connection, String checkpointId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT rows_imported FROM import_checkpoint WHERE id = ?")) {
+            statement.setString(1, checkpointId);
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() ? result.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static void saveCheckpoint(Connection connection, String checkpointId, long rows) throws SQLException {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE import_checkpoint SET rows_imported = ?, updated_at = ? WHERE id = ?")) {
+            update.setLong(1, rows);
+            update.setTimestamp(2, now);
+            update.setString(3, checkpointId);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO import_checkpoint (id, rows_imported, updated_at) VALUES (?, ?, ?)")) {
+            insert.setString(1, checkpointId);
+            insert.setLong(2, rows);
+            insert.setTimestamp(3, now);
+            insert.executeUpdate();
+        }
+    }
+
+    // Every node keeps the block of ids below the last value it read from the sequence, and hands them out without
+    // asking the database again. Reading the next value reserves one more block for the import, so every id up to
+    // the returned value less one block may already be taken. Blocks that nodes read while the import runs are not
+    // covered, which is why the sequence is moved past the imported ids after every chunk.
+    private static long reservedIds(Connection connection, Table table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT nextval('" + table.sequence + "')")) {
+            result.next();
+            return result.getLong(1) - ID_ALLOCATION_SIZE;
+        }
+    }
+
+    // Imported ids bypass the sequence, so it is moved past them before Hibernate hands out another block
+    private static void adjustSequence(Connection connection, Table table) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            long max;
+            try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table.tableName)) {
+                result.next();
+                max = result.getLong(1);
+            }
+            long next;
+            try (ResultSet result = statement.executeQuery("SELECT nextval('" + table.sequence + "')")) {
+                result.next();
+                next = result.getLong(1);
+            }
+            if (next - ID_ALLOCATION_SIZE < max) {
+                statement.execute("ALTER SEQUENCE " + table.sequence + " RESTART WITH " + (max + ID_ALLOCATION_SIZE));
+            }
+        }
+    }
+
+    private void invalidateCaches(Table table) {
+        for (String name : table.caches) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        if (table == Table.MESSAGES || table == Table.USERS) {
+            roomTimelineService.invalidateCluster();
+        }
+    }
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    public enum Table {
+        USERS("users", "users_seq", List.of("usersCache", "chatRoomsCache", "messagesCache"),
+                Column.id("id", "id"),
+                Column.text("username", "username", true),
+                Column.text("email", "email", true),
+                Column.text("password", "password", true),
+                Column.text("avatar", "avatar", false),
+                Column.choice("role", "role", Role.USER.name(), Role.values()),
+                Column.choice("user_status", "userStatus", UserStatus.OFFLINE.name(), UserStatus.values())),
+        ROOMS("chat_room", "chat_room_seq", List.of("chatRoomsCache"),
+                Column.id("id", "id"),
+                Column.text("name", "name", true),
+                Column.text("description", "description", true)),
+        PARTICIPANTS("participants", null, List.of("chatRoomsCache", "membershipCache"),
+                Column.id("chat_room_id", "roomId"),
+                Column.id("user_id", "userId")),
+        MESSAGES("message", "message_seq", List.of("messagesCache", "chatRoomsCache"),
+                Column.id("id", "id"),
+                Column.text("content", "content", true),
+                Column.timestamp("time_stamp", "timeStamp"),
+                Column.id("sender", "senderId"),
+                Column.id("room", "roomId"));
+
+        private final String tableName;
+        private final String sequence;
+        private final List<String> caches;
+        private final List<Column> columns;
+
+        Table(String tableName, String sequence, List<String> caches, Column... columns) {
+            this.tableName = tableName;
+            this.sequence = sequence;
+            this.caches = caches;
+            this.columns = List.of(columns);
+        }
+
+        public static Table of(String label) {
+            for (Table table : values()) {
+                if (table.label().equals(label)) {
+                    return table;
+                }
+            }
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Import target must be one of "
+                    + Arrays.stream(values()).map(Table::label).collect(Collectors.joining(", ")) + ".");
+        }
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        private String columnList() {
+            return columns.stream().map(Column::name).collect(Collectors.joining(", "));
+        }
+
+        private Object[] convert(String[] values, long idOffset) {
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = columns.get(i).convert(values[i], idOffset);
+            }
+            return row;
+        }
+    }
+
+    private enum Kind {
+        ID, TEXT, TIMESTAMP
+    }
+
+    private record Column(String name, String field, Kind kind, boolean required, String defaultValue,
+                          Set<String> allowed) {
+
+        static Column id(String name, String field) {
+            return new Column(name, field, Kind.ID, true, null, null);
+        }
+
+        static Column text(String name, String field, boolean required) {
+            return new Column(name, field, Kind.TEXT, required, null, null);
+        }
+
+        static Column timestamp(String name, String field) {
+            return new Column(name, field, Kind.TIMESTAMP, true, null, null);
+        }
+
+        static Column choice(String name, String field, String defaultValue, Enum<?>[] values) {
+            return new Column(name, field, Kind.TEXT, true, defaultValue,
+                    Arrays.stream(values).map(Enum::name).collect(Collectors.toSet()));
+        }
+
+        Object convert(String value, long idOffset) {
+            if (value == null || value.isEmpty()) {
+                value = defaultValue;
+            }
+            if (value == null) {
+                if (required) {
+                    throw new IllegalArgumentException(field + " is missing");
+                }
+                return null;
+            }
+            try {
+                return switch (kind) {
+                    case ID -> Math.addExact(Long.parseLong(value), idOffset);
+                    case TIMESTAMP -> LocalDateTime.parse(value, TIMESTAMP);
+                    case TEXT -> {
+                        if (allowed != null && !allowed.contains(value)) {
+                            throw new IllegalArgumentException(field + " must be one of " + allowed);
+                        }
+                        yield value;
+                    }
+                };
+            } catch (NumberFormatException | ArithmeticException | DateTimeParseException e) {
+                throw new IllegalArgumentException(field + " has an invalid value '" + value + "'");
+            }
+        }
+
+        int sqlType() {
+            return switch (kind) {
+                case ID -> Types.BIGINT;
+                case TIMESTAMP -> Types.TIMESTAMP;
+                case TEXT -> Types.VARCHAR;
+            };
+        }
+    }
+
+    // Raw field values in the column order of the table, or null after the last row
+    private interface RowReader extends AutoCloseable {
+
+        String[] next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class NdjsonReader implements RowReader {
+
+        private final Table table;
+        private final MappingIterator<JsonNode> rows;
+
+        NdjsonReader(InputStream input, Table table) throws IOException {
+            this.table = table;
+            this.rows = objectMapper.readerFor(JsonNode.class).readValues(input);
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            if (!rows.hasNextValue()) {
+                return null;
+            }
+            JsonNode row = rows.nextValue();
+            if (!row.isObject()) {
+                throw new IllegalArgumentException("expected a JSON object per line");
+            }
+            String[] values = new String[table.columns.size()];
+            for (int i = 0; i < values.length; i++) {
+                JsonNode value = row.get(table.columns.get(i).field());
+                values[i] = value == null || value.isNull() ? null : value.asText();
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+
+    // RFC 4180 records with a header row naming the fields; quoted fields may hold commas, quotes and line breaks
+    private static final class CsvReader implements RowReader {
+
+        private final Reader reader;
+        private final char[] buffer = new char[BUFFER_SIZE];
+        private final StringBuilder field = new StringBuilder();
+        private final List<String> record = new ArrayList<>();
+        private final int[] positions;
+        private int position;
+        private int limit;
+
+        CsvReader(InputStream input, Table table) throws IOException {
+            this.reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            List<String> header = readRecord();
+            if (header == null) {
+                header = List.of();
+            }
+            Map<String, Integer> indexes = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                indexes.put(header.get(i).trim(), i);
+            }
+            positions = new int[table.columns.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = indexes.getOrDefault(table.columns.get(i).field(), -1);
+            }
+        }
+
+        @Override
+        public String[] next() throws IOException {
+            List<String> fields = readRecord();
+            if (fields == null) {
+                return null;
+            }
+            String[] values = new String[positions.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = positions[i] >= 0 && positions[i] < fields.size() ? fields.get(positions[i]) : null;
+            }
+            return values;
+        }
+
+        private List<String> readRecord() throws IOException {
+            while (true) {
+                record.clear();
+                field.setLength(0);
+                boolean quoted = false;
+                int c = read();
+                if (c == -1) {
+                    return null;
+                }
+                for (; c != -1; c = read()) {
+                    if (quoted) {
+                        if (c != '"') {
+                            field.append((char) c);
+                        } else if (peek() == '"') {
+                            field.append('"');
+                            position++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else if (c == '"') {
+                        quoted = true;
+                    } else if (c == ',') {
+                        record.add(field.toString());
+                        field.setLength(0);
+                    } else if (c == '\n') {
+                        break;
+                    } else if (c != '\r') {
+                        field.append((char) c);
+                    }
+                }
+                if (quoted) {
+                    throw new IllegalArgumentException("unterminated quoted field");
+                }
+                record.add(field.toString());
+                // Blank lines carry no record
+                if (record.size() > 1 || !record.get(0).isEmpty()) {
+                    return record;
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            limit = reader.read(buffer);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    // One writer per chunk, so every chunk is a separate COPY or batch inside its own transaction
+    private interface RowWriter {
+
+        void write(Object[] row) throws IOException, SQLException;
+
+        void finish() throws IOException, SQLException;
+
+        void abort();
+    }
+
+    private static final class CopyWriter implements RowWriter {
+
+        private final PGCopyOutputStream copy;
+        private final Writer out;
+
+        CopyWriter(PGConnection connection, Table table) throws SQLException {
+            this.copy = new PGCopyOutputStream(connection,
+                    "COPY " + table.tableName + " (" + table.columnList() + ") FROM STDIN WITH (FORMAT csv)",
+                    BUFFER_SIZE);
+            this.out = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(Object[] row) throws IOException {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = row[i];
+                // Unquoted empty fields are NULL in COPY csv, so text is always quoted
+                if (value instanceof String text) {
+                    out.write('"');
+                    out.write(text.indexOf('"') < 0 ? text : text.replace("\"", "\"\""));
+                    out.write('"');
+                } else if (value != null) {
+                    out.write(value.toString());
+                }
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void finish() throws IOException, SQLException {
+            out.flush();
+            copy.endCopy();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            } catch (SQLException e) {
+                log.warn("Could not cancel COPY: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Used on databases without COPY, such as the in-memory database of the tests
+    private static final class BatchWriter implements RowWriter {
+
+        private final Table table;
+        private final PreparedStatement statement;
+        private int pending;
+
+        BatchWriter(Connection connection, Table table) throws SQLException {
+            this.table = table;
+            this.statement = connection.prepareStatement("INSERT INTO " + table.tableName
+                    + " (" + table.columnList() + ") VALUES ("
+                    + String.join(", ", Collections.nCopies(table.columns.size(), "?")) + ")");
+        }
+
+        @Override
+        public void write(Object[] row) throws SQLException {
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] == null) {
+                    statement.setNull(i + 1, table.columns.get(i).sqlType());
+                } else {
+                    statement.setObject(i + 1, row[i]);
+                }
+            }
+            statement.addBatch();
+            if (++pending == BATCH_SIZE) {
+                statement.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void finish() throws SQLException {
+            if (pending > 0) {
+                statement.executeBatch();
+            }
+            statement.close();
+        }
+
+        @Override
+        public void abort() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.warn("Could not close import statement: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,11 +37,12 @@ public class MessageService {
         this.userRepository = userRepository;
     }
 
-    @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
+    @Transactional(readOnly = true)
     public List<Message> getAllMessages() {
         return messageRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
     public Message getMessageById(Long id) {
         return messageRepository.findById(id).orElseThrow(
@@ -48,27 +50,35 @@ public class MessageService {
                 ));
     }
 
+    // For write paths: not cached and in a read-write transaction, so the read goes to the primary and sees a
+    // message that was just written even while the replica lags
+    @Transactional
+    public Message getMessageFromPrimary(Long id) {
+        return messageRepository.findById(id).orElseThrow(
+                () -> new ApplicationException(HttpStatus.NOT_FOUND, "Message with id " + id + " not found."
+                ));
+    }
+
+    @Transactional(readOnly = true)
     @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
     public List<Message> getSortedMessagesForUserAsc(Long id) {
         return messageRepository.findAllBySenderIdOrderByTimeStampAsc(id);
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
     public List<Message> getSortedMessagesForUserDesc(Long id) {
         return messageRepository.findAllBySenderIdOrderByTimeStampDesc(id);
     }
 
-    @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
-    public List<Message> getSortedMessagesForChat(Long id) {
-        return messageRepository.findAllForChatWithIdOrderByTimeStampAsc(id);
-    }
-
+    @Transactional(readOnly = true)
     @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
     public List<Message> getSortedMessagesByKeyword(String keyword) {
         String trimmedKeyword = keyword.trim().toLowerCase();
         return messageRepository.findAllMessagesByKeyword(trimmedKeyword);
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "messagesCache", key = "{#root.methodName, #root.args}")
     public List<Message> getSortedMessages(int limit, int offset) {
         List<Message> allMessages = messageRepository.findAll();
@@ -76,6 +86,7 @@ public class MessageService {
     }
 
     @CachePut(value = "messagesCache", key = "#result.id")
+    @Transactional
     public Message sendMessage(String content, Long roomId, Long senderId) {
         Message message = new Message();
         ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow(
@@ -94,6 +105,7 @@ public class MessageService {
         return messageRepository.save(message);
     }
 
+    @Transactional
     public boolean containsUserInRoom(Long roomId, Long senderId) {
         ChatRoom room = chatRoomRepository.findById(roomId).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Room with id " + roomId + " not found.")
@@ -104,9 +116,16 @@ public class MessageService {
         return chatRoomRepository.containsUserInRoom(room.getId(), sender.getId());
     }
 
+    // On the primary, so a message sent a moment ago is already found
+    @Transactional
+    public boolean containsMessageInRoom(Long roomId, Long messageId) {
+        return messageRepository.existsMessageByIdAndRoomId(messageId, roomId);
+    }
+
     @CacheEvict(value = "messagesCache", key = "#id")
     @CachePut(value = "messagesCache", key = "#id")
-    public void updateMessage(Long id, Long userId, String content) {
+    @Transactional
+    public Message updateMessage(Long id, Long userId, String content) {
         Message message = messageRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Message with id " + id + " not found.")
         );
@@ -119,14 +138,16 @@ public class MessageService {
             throw new ApplicationException(HttpStatus.BAD_REQUEST,
                     "Message content must be defined or should not be the same as the existing message.");
         }
-        messageRepository.save(message);
+        return messageRepository.save(message);
     }
 
     @CacheEvict(value = "messagesCache", key = "#id")
-    public void deleteMessage(Long id) {
+    @Transactional
+    public Message deleteMessage(Long id) {
         Message message = messageRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Message not found.")
         );
         messageRepository.delete(message);
+        return message;
     }
 }
@@ -6,7 +6,7 @@ import app.nss.webchat.entity.User;
 import app.nss.webchat.repository.NotificationRepository;
 import app.nss.webchat.repository.UserRepository;
 import app.nss.webchat.exception.ApplicationException;
-import jakarta.transaction.Transactional;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CachePut;
@@ -24,20 +24,23 @@ public class NotificationService {
     private final NotificationRepository notificationRepository;
     private final PaginationService paginationService;
     private final UserRepository userRepository;
+    private final CleanupService cleanupService;
 
     @Autowired
     public NotificationService(NotificationRepository notificationRepository, PaginationService paginationService,
-                               UserRepository userRepository) {
+                               UserRepository userRepository, CleanupService cleanupService) {
         this.notificationRepository = notificationRepository;
         this.paginationService = paginationService;
         this.userRepository = userRepository;
+        this.cleanupService = cleanupService;
     }
 
-    @Cacheable(value = "notificationsCache", key = "{#root.methodName, #root.args}")
+    @Transactional(readOnly = true)
     public List<Notification> getAllNotifications() {
         return notificationRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "notificationsCache", key = "{#root.methodName, #root.args}")
     public Notification getNotificationById(Long id) {
         return notificationRepository.findById(id).orElseThrow(
@@ -45,6 +48,7 @@ public class NotificationService {
         );
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "notificationsCache", key = "'unreadNotifications'")
     public List<Notification> getUnreadNotifications(Long recipientId) {
         userRepository.findById(recipientId).orElseThrow(
@@ -54,6 +58,7 @@ public class NotificationService {
         return notificationRepository.findByRecipientIdAndStatus(recipientId, NotificationStatus.UNREAD);
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "notificationsCache", key = "'readNotifications'")
     public List<Notification> getReadNotifications(Long recipientId) {
         userRepository.findById(recipientId).orElseThrow(
@@ -64,6 +69,7 @@ public class NotificationService {
     }
 
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "notificationsCache", key = "'paginationNotifications' + #limit + #offset")
     public List<Notification> getPaginationNotifications(int limit, int offset) {
         List<Notification> allNotifications = notificationRepository.findAll();
@@ -71,6 +77,7 @@ public class NotificationService {
     }
 
     @CachePut(value = "notificationsCache", key = "#result.id")
+    @Transactional
     public Notification createNotification(String content, Long recipientId) {
         Notification notification = new Notification();
         User recipient = userRepository.findById(recipientId).orElseThrow(
@@ -88,6 +95,7 @@ public class NotificationService {
 
     @CacheEvict(value = "notificationsCache", key = "#id")
     @CachePut(value = "notificationsCache", key = "#id")
+    @Transactional
     public void updateNotification(Long id, String content) {
         Notification notification = notificationRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Notification with id " + id + " not found.")
@@ -122,6 +130,7 @@ public class NotificationService {
     }
 
     @CacheEvict(value = "notificationsCache", key = "#id")
+    @Transactional
     public void deleteNotification(Long id) {
         Notification notification = notificationRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "Notification with id " + id + " not found.")
@@ -130,11 +139,11 @@ public class NotificationService {
     }
 
     @CacheEvict(value = "notificationsCache", key = "#userId")
+    @Transactional
     public void deleteAllNotificationsFromUser(Long userId) {
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + userId + " not found.")
-        );
-        List<Notification> userNotifications = user.getNotifications();
-        notificationRepository.deleteAll(userNotifications);
+        if (!userRepository.existsById(userId)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + userId + " not found.");
+        }
+        cleanupService.deleteNotifications(userId);
     }
 }
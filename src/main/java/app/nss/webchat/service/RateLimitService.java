@@ -0,0 +1,230 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.Role;
+import app.nss.webchat.exception.RateLimitException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.ExtendedMapEntry;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Token buckets for sending messages, one per user and one per room. Each bucket is a single "theoretical arrival
+// time" (GCRA): a request is allowed while that time is at most the burst ahead of now, and moves it on by one
+// emission interval. Locally that is one compare-and-set on an AtomicLong, in cluster mode a Hazelcast entry
+// processor on the member that owns the key, so all nodes share the same buckets.
+@Slf4j
+@Service
+public class RateLimitService {
+
+    static final String MAP_NAME = "rateLimits";
+    private static final String USER_MESSAGE = "Too many messages, please slow down.";
+    private static final String ROOM_MESSAGE = "Too many messages in this room, please try again later.";
+
+    record Limit(long intervalNanos, long toleranceNanos) {
+
+        // A full bucket lets burst requests through at once, then one per interval
+        static Limit of(double perSecond, int burst) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            return new Limit(interval, interval * Math.max(0, burst - 1));
+        }
+    }
+
+    private final boolean enabled;
+    private final Map<Role, Limit> userLimits;
+    private final Limit roomLimit;
+    private final IMap<String, Long> clusterBuckets;
+    private final LongSupplier clock;
+    private final Map<String, AtomicLong> localBuckets = new ConcurrentHashMap<>();
+    private final Counter userRejected;
+    private final Counter roomRejected;
+
+    @Autowired
+    public RateLimitService(MeterRegistry meterRegistry, ObjectProvider<HazelcastInstance> hazelcastInstance,
+                            @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${app.rate-limit.cluster:false}") boolean cluster,
+                            @Value("${app.rate-limit.user.rate:5}") double userRate,
+                            @Value("${app.rate-limit.user.burst:20}") int userBurst,
+                            @Value("${app.rate-limit.admin.rate:50}") double adminRate,
+                            @Value("${app.rate-limit.admin.burst:200}") int adminBurst,
+                            @Value("${app.rate-limit.room.rate:100}") double roomRate,
+                            @Value("${app.rate-limit.room.burst:300}") int roomBurst) {
+        this(meterRegistry, enabled, Map.of(Role.USER, Limit.of(userRate, userBurst),
+                        Role.ADMIN, Limit.of(adminRate, adminBurst)), Limit.of(roomRate, roomBurst),
+                cluster ? hazelcastInstance.getObject().getMap(MAP_NAME) : null, System::nanoTime);
+    }
+
+    RateLimitService(MeterRegistry meterRegistry, boolean enabled, Map<Role, Limit> userLimits, Limit roomLimit,
+                     IMap<String, Long> clusterBuckets, LongSupplier clock) {
+        this.enabled = enabled;
+        this.userLimits = userLimits;
+        this.roomLimit = roomLimit;
+        this.clusterBuckets = clusterBuckets;
+        this.clock = clock;
+        this.userRejected = Counter.builder("ratelimit.rejected").tag("bucket", "user").register(meterRegistry);
+        this.roomRejected = Counter.builder("ratelimit.rejected").tag("bucket", "room").register(meterRegistry);
+        Gauge.builder("ratelimit.buckets", localBuckets, Map::size).register(meterRegistry);
+        if (enabled) {
+            log.info("Message rate limits are enforced {}.", clusterBuckets != null ? "cluster-wide" : "per node");
+        }
+    }
+
+    public void acquireMessage(Authentication authentication, Long roomId) {
+        if (!enabled) {
+            return;
+        }
+        String userKey = "user:" + authentication.getName();
+        Limit userLimit = userLimits.get(roleOf(authentication));
+        long wait = acquire(userKey, userLimit);
+        if (wait > 0) {
+            userRejected.increment();
+            throw new RateLimitException(USER_MESSAGE, Duration.ofNanos(wait));
+        }
+        wait = acquire("room:" + roomId, roomLimit);
+        if (wait > 0) {
+            // The message is not sent, so it does not count against the user either
+            refund(userKey, userLimit);
+            roomRejected.increment();
+            throw new RateLimitException(ROOM_MESSAGE, Duration.ofNanos(wait));
+        }
+    }
+
+    // Drops buckets that are full again, they behave the same as a missing one
+    @Scheduled(fixedDelayString = "${app.rate-limit.cleanup-interval:PT1M}")
+    public void removeFullBuckets() {
+        long now = clock.getAsLong();
+        localBuckets.values().removeIf(arrival -> arrival.get() - now <= 0);
+    }
+
+    // Returns 0 when the request is allowed, otherwise how long until it would be
+    private long acquire(String key, Limit limit) {
+        if (clusterBuckets != null) {
+            return clusterBuckets.executeOnKey(key, new AcquireProcessor(limit.intervalNanos(), limit.toleranceNanos()));
+        }
+        AtomicLong arrival = localBuckets.get(key);
+        if (arrival == null) {
+            arrival = localBuckets.computeIfAbsent(key, k -> new AtomicLong(clock.getAsLong()));
+        }
+        long now = clock.getAsLong();
+        while (true) {
+            long current = arrival.get();
+            long base = current - now > 0 ? current : now;
+            long wait = base - now - limit.toleranceNanos();
+            if (wait > 0) {
+                return wait;
+            }
+            if (arrival.compareAndSet(current, base + limit.intervalNanos())) {
+                return 0;
+            }
+        }
+    }
+
+    private void refund(String key, Limit limit) {
+        if (clusterBuckets != null) {
+            clusterBuckets.executeOnKey(key, new RefundProcessor(limit.intervalNanos()));
+            return;
+        }
+        AtomicLong arrival = localBuckets.get(key);
+        if (arrival != null) {
+            arrival.addAndGet(-limit.intervalNanos());
+        }
+    }
+
+    private static Role roleOf(Authentication authentication) {
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(authority -> Role.ADMIN.toString().equals(authority.getAuthority()));
+        return admin ? Role.ADMIN : Role.USER;
+    }
+
+    private static long wallClockNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    }
+
+    // Hazelcast expires entries at whole seconds, so this is rounded up. A TTL of 0 would keep the entry forever.
+    private static long ttlSeconds(long arrival) {
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(arrival - wallClockNanos()) + 1);
+    }
+
+    // Runs on the member that owns the key, so every node sees the same bucket. Members share the wall clock,
+    // since nanoTime values cannot be compared between machines.
+    static final class AcquireProcessor implements EntryProcessor<String, Long, Long> {
+
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        private transient Long arrival;
+
+        AcquireProcessor(long intervalNanos, long toleranceNanos) {
+            this.intervalNanos = intervalNanos;
+            this.toleranceNanos = toleranceNanos;
+        }
+
+        @Override
+        public Long process(Map.Entry<String, Long> entry) {
+            long now = wallClockNanos();
+            Long current = entry.getValue();
+            long base = current == null || current < now ? now : current;
+            long wait = base - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            arrival = base + intervalNanos;
+            // Expires once the bucket is full again, so idle users and rooms do not stay in the map
+            ((ExtendedMapEntry<String, Long>) entry).setValue(arrival, ttlSeconds(arrival), TimeUnit.SECONDS);
+            return 0L;
+        }
+
+        // Backups take the owner's result instead of reading their own clock, rejected requests change nothing
+        @Override
+        public EntryProcessor<String, Long, Long> getBackupProcessor() {
+            return arrival == null ? null : new BackupProcessor(arrival);
+        }
+    }
+
+    static final class BackupProcessor implements EntryProcessor<String, Long, Long> {
+
+        private final long arrival;
+
+        BackupProcessor(long arrival) {
+            this.arrival = arrival;
+        }
+
+        @Override
+        public Long process(Map.Entry<String, Long> entry) {
+            ((ExtendedMapEntry<String, Long>) entry).setValue(arrival, ttlSeconds(arrival), TimeUnit.SECONDS);
+            return 0L;
+        }
+    }
+
+    static final class RefundProcessor implements EntryProcessor<String, Long, Long> {
+
+        private final long intervalNanos;
+
+        RefundProcessor(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+        }
+
+        @Override
+        public Long process(Map.Entry<String, Long> entry) {
+            if (entry.getValue() != null) {
+                ((ExtendedMapEntry<String, Long>) entry).setValueWithoutChangingExpiryTime(
+                        entry.getValue() - intervalNanos);
+            }
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.ReadWatermarkResponse;
+import app.nss.webchat.entity.ReadWatermark;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ReadWatermarkRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// Read receipts as one watermark per user and room: the id of the last message the user has read, which marks
+// every earlier message as read too. Reading a message only moves the watermark in memory, the latest position
+// per user and room is written by a periodic flush, so a client reporting each message it scrolls past costs
+// one upsert per flush at most. Receipts are answered from rooms cached in memory, which are reloaded after the
+// cache ttl to pick up positions flushed by other nodes.
+@Slf4j
+@Service
+public class ReadReceiptService {
+
+    private final ReadWatermarkRepository readWatermarkRepository;
+    private final ChatRoomService chatRoomService;
+    private final MessageService messageService;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxRooms;
+    private final long cacheTtlNanos;
+    private final LongSupplier clock;
+    private final Map<ReadWatermark.Key, Long> pending = new ConcurrentHashMap<>();
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+    private final Counter flushedCounter;
+
+    @Autowired
+    public ReadReceiptService(ReadWatermarkRepository readWatermarkRepository, ChatRoomService chatRoomService,
+                              MessageService messageService, PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.read-receipts.max-rooms:10000}") int maxRooms,
+                              @Value("${app.read-receipts.cache-ttl:PT30S}") Duration cacheTtl) {
+        this(readWatermarkRepository, chatRoomService, messageService, transactionManager, meterRegistry, maxRooms,
+                cacheTtl, System::nanoTime);
+    }
+
+    ReadReceiptService(ReadWatermarkRepository readWatermarkRepository, ChatRoomService chatRoomService,
+                       MessageService messageService, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry, int maxRooms, Duration cacheTtl, LongSupplier clock) {
+        this.readWatermarkRepository = readWatermarkRepository;
+        this.chatRoomService = chatRoomService;
+        this.messageService = messageService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxRooms = maxRooms;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.clock = clock;
+        this.coalescedCounter = Counter.builder("read-receipts.coalesced").register(meterRegistry);
+        this.flushedCounter = Counter.builder("read-receipts.flushed").register(meterRegistry);
+        Gauge.builder("read-receipts.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    // Watermarks only move forward, reading an older message again changes nothing. Only a position past the known
+    // one is looked up, so an id that is not in the room cannot mark the room's future messages as read.
+    public void markRead(Long roomId, Long userId, Long messageId) {
+        if (!chatRoomService.isParticipant(roomId, userId)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Chat room does not contain this user.");
+        }
+        ReadWatermark.Key watermarkKey = new ReadWatermark.Key(userId, roomId);
+        if (messageId > knownPosition(watermarkKey) && !messageService.containsMessageInRoom(roomId, messageId)) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND,
+                    "Message with id " + messageId + " not found in this room.");
+        }
+        pending.compute(watermarkKey, (key, previous) -> {
+            if (previous == null) {
+                return messageId;
+            }
+            coalescedCounter.increment();
+            return Math.max(previous, messageId);
+        });
+        // A room being loaded blocks this until it is cached, so the new position is applied on top of it
+        rooms.computeIfPresent(roomId, (id, room) -> {
+            room.watermarks.merge(userId, messageId, Math::max);
+            return room;
+        });
+    }
+
+    public List<ReadWatermarkResponse> getWatermarks(Long roomId) {
+        return room(roomId).watermarks.entrySet().stream()
+                .map(entry -> new ReadWatermarkResponse(roomId, entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparing(ReadWatermarkResponse::userId))
+                .toList();
+    }
+
+    // Everyone whose watermark is at or past the message has read it
+    public List<ReadWatermarkResponse> getReaders(Long roomId, Long messageId) {
+        return getWatermarks(roomId).stream()
+                .filter(watermark -> watermark.lastReadMessageId() >= messageId)
+                .toList();
+    }
+
+    // Entries are removed only after their upsert committed and only if they did not move meanwhile, so a room
+    // loaded from the database in between still finds every position in either the table or the pending map
+    @Scheduled(fixedDelayString = "${app.read-receipts.flush-interval:PT1S}")
+    public void flush() {
+        long now = clock.getAsLong();
+        rooms.values().removeIf(room -> now - room.loadedAt >= cacheTtlNanos);
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<ReadWatermark.Key, Long> batch = Map.copyOf(pending);
+        LocalDateTime updatedAt = LocalDateTime.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach((key, messageId) ->
+                    readWatermarkRepository.upsert(key.getUserId(), key.getRoomId(), messageId, updatedAt)));
+            batch.forEach(pending::remove);
+            flushedCounter.increment(batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // Some user or room was deleted in the meantime, write the rest one by one
+            batch.forEach((key, messageId) -> flushOne(key, messageId, updatedAt));
+        } catch (DataAccessException e) {
+            log.warn("Flushing {} read watermarks failed, retrying with the next flush: {}", batch.size(),
+                    e.getMessage());
+        }
+    }
+
+    private void flushOne(ReadWatermark.Key key, Long messageId, LocalDateTime updatedAt) {
+        try {
+            readWatermarkRepository.upsert(key.getUserId(), key.getRoomId(), messageId, updatedAt);
+            flushedCounter.increment();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Dropping read watermark of user {} in deleted room {}.", key.getUserId(), key.getRoomId());
+        } catch (DataAccessException e) {
+            log.warn("Flushing read watermark of user {} in room {} failed: {}", key.getUserId(), key.getRoomId(),
+                    e.getMessage());
+            return;
+        }
+        pending.remove(key, messageId);
+    }
+
+    private long knownPosition(ReadWatermark.Key key) {
+        long position = pending.getOrDefault(key, 0L);
+        Room room = rooms.get(key.getRoomId());
+        if (room != null) {
+            position = Math.max(position, room.watermarks.getOrDefault(key.getUserId(), 0L));
+        }
+        return position;
+    }
+
+    private Room room(Long roomId) {
+        Room cached = rooms.get(roomId);
+        if (cached != null) {
+            return cached;
+        }
+        if (rooms.size() >= maxRooms) {
+            // Evicted rooms are only reloaded, positions not yet flushed stay in the pending map
+            Iterator<Long> iterator = rooms.keySet().iterator();
+            if (iterator.hasNext()) {
+                rooms.remove(iterator.next());
+            }
+        }
+        return rooms.computeIfAbsent(roomId, id -> {
+            Room room = new Room(clock.getAsLong());
+            // On the primary, a replica may not have the positions the last flush removed from the pending map
+            transactionTemplate.executeWithoutResult(status -> readWatermarkRepository.findAllByRoomId(id)
+                    .forEach(watermark -> room.watermarks.put(watermark.getUserId(),
+                            watermark.getLastReadMessageId())));
+            pending.forEach((key, messageId) -> {
+                if (key.getRoomId().equals(id)) {
+                    room.watermarks.merge(key.getUserId(), messageId, Math::max);
+                }
+            });
+            return room;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static final class Room {
+
+        private final long loadedAt;
+        private final Map<Long, Long> watermarks = new ConcurrentHashMap<>();
+
+        private Room(long loadedAt) {
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.response.TimelineMessageResponse;
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.entity.User;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.UserRepository;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Read model for room history. Every node keeps the timelines of the rooms it served recently and keeps
+// them current from the messages topic, so history reads need neither the message table nor its joins.
+// Changes that bypass the topic are announced on a Hazelcast topic, so every node drops its copy.
+@Slf4j
+@Service
+public class RoomTimelineService {
+
+    static final String INVALIDATION_TOPIC = "timeline-invalidations";
+    // Published instead of a room id when every timeline is dropped
+    private static final long ALL_ROOMS = 0L;
+    private static final Comparator<Entry> TIMELINE_ORDER =
+            Comparator.comparing(Entry::timeStamp).thenComparing(Entry::id);
+
+    private final MessageRepository messageRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxRooms;
+    private final long senderTtlNanos;
+    private final Map<Long, RoomTimeline> timelines = new ConcurrentHashMap<>();
+    private final Map<Long, Sender> senders = new ConcurrentHashMap<>();
+    private final ITopic<Long> invalidations;
+    // Until the projection consumer owns its partitions, events could be missed, so nothing is kept
+    private volatile boolean live;
+
+    @Autowired
+    public RoomTimelineService(MessageRepository messageRepository, UserRepository userRepository,
+                               PlatformTransactionManager transactionManager,
+                               ObjectProvider<HazelcastInstance> hazelcastInstance,
+                               @Value("${app.timeline.max-rooms:1000}") int maxRooms,
+                               @Value("${app.timeline.sender-ttl:PT5M}") Duration senderTtl) {
+        this(messageRepository, userRepository, transactionManager, maxRooms, senderTtl,
+                topic(hazelcastInstance.getIfAvailable()));
+    }
+
+    RoomTimelineService(MessageRepository messageRepository, UserRepository userRepository,
+                        PlatformTransactionManager transactionManager, int maxRooms, Duration senderTtl,
+                        ITopic<Long> invalidations) {
+        this.messageRepository = messageRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxRooms = maxRooms;
+        this.senderTtlNanos = senderTtl.toNanos();
+        this.invalidations = invalidations;
+        if (invalidations != null) {
+            invalidations.addMessageListener(message -> {
+                long roomId = message.getMessageObject();
+                if (roomId == ALL_ROOMS) {
+                    invalidate();
+                } else {
+                    invalidate(roomId);
+                }
+            });
+        }
+    }
+
+    private static ITopic<Long> topic(HazelcastInstance hazelcastInstance) {
+        return hazelcastInstance != null ? hazelcastInstance.getTopic(INVALIDATION_TOPIC) : null;
+    }
+
+    public List<TimelineMessageResponse> getTimeline(Long roomId) {
+        List<Entry> entries;
+        if (live) {
+            RoomTimeline timeline = timelines.computeIfAbsent(roomId, id -> new RoomTimeline());
+            entries = timeline.read(() -> load(roomId));
+            if (timelines.size() > maxRooms) {
+                evictLeastRecentlyRead();
+            }
+        } else {
+            entries = load(roomId).values().stream().sorted(TIMELINE_ORDER).toList();
+        }
+        List<TimelineMessageResponse> response = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            Sender sender = sender(entry.senderId());
+            response.add(new TimelineMessageResponse(entry.id(), entry.content(), entry.timeStamp(),
+                    entry.senderId(), sender.username(), sender.avatar()));
+        }
+        return response;
+    }
+
+    public void apply(MessageEvent event) {
+        RoomTimeline timeline = timelines.get(event.roomId());
+        // Rooms nobody read yet are loaded from the database later; the message is committed before its event
+        if (timeline == null) {
+            return;
+        }
+        try {
+            timeline.apply(event);
+        } catch (RuntimeException e) {
+            timelines.remove(event.roomId(), timeline);
+            log.warn("Dropped timeline of room {} after a failed update: {}", event.roomId(), e.getMessage());
+        }
+    }
+
+    public void setLive(boolean live) {
+        this.live = live;
+        if (!live) {
+            timelines.clear();
+        }
+    }
+
+    // Node-local, for changes that bypass the messages topic use invalidateCluster
+    public void invalidate() {
+        timelines.clear();
+        senders.clear();
+    }
+
+    public void invalidate(Long roomId) {
+        timelines.remove(roomId);
+    }
+
+    // For changes that bypass the messages topic, such as bulk imports. This node drops its copy right away,
+    // the others when the announcement arrives.
+    public void invalidateCluster() {
+        invalidate();
+        announce(ALL_ROOMS);
+    }
+
+    public void invalidateCluster(Long roomId) {
+        invalidate(roomId);
+        announce(roomId);
+    }
+
+    private void announce(long roomId) {
+        if (invalidations == null) {
+            return;
+        }
+        try {
+            invalidations.publish(roomId);
+        } catch (RuntimeException e) {
+            log.warn("Could not announce the invalidation of {} to other nodes: {}",
+                    roomId == ALL_ROOMS ? "all timelines" : "the timeline of room " + roomId, e.getMessage());
+        }
+    }
+
+    // In a read-write transaction, so it reads the primary. Events that came before the timeline was loaded were
+    // dropped, the load has to see their messages, which a lagging replica cannot promise.
+    private Map<Long, Entry> load(Long roomId) {
+        Map<Long, Entry> entries = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Message message : messageRepository.findTimelineForChat(roomId)) {
+                User user = message.getSender();
+                senders.put(user.getId(), new Sender(user.getUsername(), user.getAvatar(), System.nanoTime()));
+                entries.put(message.getId(), new Entry(message.getId(), message.getContent(),
+                        message.getTimeStamp(), user.getId()));
+            }
+        });
+        return entries;
+    }
+
+    private Sender sender(Long senderId) {
+        Sender sender = senders.get(senderId);
+        if (sender == null || System.nanoTime() - sender.loadedAt() > senderTtlNanos) {
+            sender = userRepository.findById(senderId)
+                    .map(user -> new Sender(user.getUsername(), user.getAvatar(), System.nanoTime()))
+                    .orElseGet(() -> new Sender(null, null, System.nanoTime()));
+            senders.put(senderId, sender);
+        }
+        return sender;
+    }
+
+    private void evictLeastRecentlyRead() {
+        // Drop a tenth more than needed so the sort is not repeated on every new room
+        int toEvict = timelines.size() - maxRooms + Math.max(1, maxRooms / 10);
+        timelines.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastRead))
+                .limit(toEvict)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(timelines::remove);
+    }
+
+    private record Entry(Long id, String content, LocalDateTime timeStamp, Long senderId) {
+    }
+
+    private record Sender(String username, String avatar, long loadedAt) {
+    }
+
+    private interface Loader {
+        Map<Long, Entry> load();
+    }
+
+    private static final class RoomTimeline {
+
+        private Map<Long, Entry> entries;
+        private volatile List<Entry> snapshot;
+        private volatile long lastRead;
+
+        List<Entry> read(Loader loader) {
+            lastRead = System.nanoTime();
+            List<Entry> current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            synchronized (this) {
+                if (entries == null) {
+                    entries = loader.load();
+                }
+                if (snapshot == null) {
+                    snapshot = entries.values().stream().sorted(TIMELINE_ORDER).toList();
+                }
+                return snapshot;
+            }
+        }
+
+        synchronized void apply(MessageEvent event) {
+            if (entries == null) {
+                return;
+            }
+            Entry existing = entries.get(event.messageId());
+            switch (event.type()) {
+                case CREATED -> {
+                    if (existing == null) {
+                        entries.put(event.messageId(), new Entry(event.messageId(), event.content(),
+                                LocalDateTime.ofInstant(Instant.ofEpochMilli(event.timestamp()), ZoneId.systemDefault()),
+                                event.senderId()));
+                    }
+                }
+                case UPDATED -> {
+                    if (existing != null) {
+                        entries.put(existing.id(), new Entry(existing.id(), event.content(), existing.timeStamp(),
+                                existing.senderId()));
+                    }
+                }
+                case DELETED -> entries.remove(event.messageId());
+            }
+            snapshot = null;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class TokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private final Mac prototypeMac;
+    private final Duration ttl;
+
+    // Revoked token ids and per-user cut-offs, both mapped to the time (millis) they stop mattering
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenService(@Value("${app.security.token.secret:}") String secret,
+                        @Value("${app.security.token.ttl:PT1H}") Duration ttl) {
+        // There is no default, a known key would let anyone sign tokens with any role
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("Token secret must be set with app.security.token.secret (TOKEN_SECRET).");
+        }
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException("Token secret must be at least " + MIN_SECRET_LENGTH + " bytes long.");
+        }
+        try {
+            this.prototypeMac = Mac.getInstance(HMAC_ALGORITHM);
+            this.prototypeMac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Token signing is not available.", e);
+        }
+        this.ttl = ttl;
+    }
+
+    public String issueToken(User user) {
+        long issuedAt = System.currentTimeMillis();
+        long expiresAt = issuedAt + ttl.toMillis();
+        // The username goes last, so it may contain the separator
+        String payload = UUID.randomUUID() + "|" + issuedAt + "|" + expiresAt + "|" +
+                user.getRole().toString() + "|" + user.getUsername();
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(payloadBytes) + "." + encoder.encodeToString(sign(payloadBytes));
+    }
+
+    public TokenClaims verifyToken(String token) {
+        TokenClaims claims = parseToken(token);
+        if (claims == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (claims.expiresAt() <= now || revokedTokens.containsKey(claims.tokenId())) {
+            return null;
+        }
+        Long cutOff = revokedBefore.get(claims.username());
+        if (cutOff != null && claims.issuedAt() <= cutOff) {
+            return null;
+        }
+        return claims;
+    }
+
+    public void revokeToken(String token) {
+        TokenClaims claims = parseToken(token);
+        if (claims != null) {
+            purgeExpired();
+            revokedTokens.put(claims.tokenId(), claims.expiresAt());
+        }
+    }
+
+    public void revokeAllTokens(String username) {
+        purgeExpired();
+        revokedBefore.put(username, System.currentTimeMillis());
+    }
+
+    public long getTtlSeconds() {
+        return ttl.toSeconds();
+    }
+
+    private TokenClaims parseToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            byte[] payloadBytes = decoder.decode(token.substring(0, dot));
+            byte[] signature = decoder.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                return null;
+            }
+            String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", 5);
+            if (parts.length != 5) {
+                return null;
+            }
+            return new TokenClaims(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3], parts[4]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            Mac mac = (Mac) prototypeMac.clone();
+            return mac.doFinal(payload);
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Token signing is not available.", e);
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        long maxAge = ttl.toMillis();
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(cutOff -> cutOff + maxAge <= now);
+    }
+
+    public record TokenClaims(String tokenId, long issuedAt, long expiresAt, String role, String username) {
+    }
+}
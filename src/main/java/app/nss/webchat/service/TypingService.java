@@ -0,0 +1,248 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.event.TypingEvent;
+import app.nss.webchat.exception.ApplicationException;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+// Typing and activity indicators per room. They are ephemeral by design: kept in memory on the node that
+// received them, never stored and never published to Kafka. Each user's signals are coalesced per room, and a
+// signal that is not renewed expires with a STOPPED event. The events that remain are relayed through a Hazelcast
+// topic, so subscribers on every node get them; who is typing right now is only known to the receiving node. Every
+// open stream holds a connection, so each user may only keep a few of them open on a node.
+@Slf4j
+@Service
+public class TypingService {
+
+    static final String EVENTS_TOPIC = "typing-events";
+
+    private final long coalesceNanos;
+    private final long ttlNanos;
+    private final Duration subscriptionTimeout;
+    private final int maxSubscriptionsPerUser;
+    private final LongSupplier clock;
+    private final ThreadPoolExecutor executor;
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Set<SseEmitter>> userSubscriptions = new ConcurrentHashMap<>();
+    private final Counter coalescedCounter;
+    private final Counter droppedCounter;
+    private final ITopic<TypingEvent> events;
+
+    @Autowired
+    public TypingService(MeterRegistry meterRegistry, ObjectProvider<HazelcastInstance> hazelcastInstance,
+                         @Value("${app.typing.coalesce:PT1S}") Duration coalesce,
+                         @Value("${app.typing.ttl:PT5S}") Duration ttl,
+                         @Value("${app.typing.subscription-timeout:PT30M}") Duration subscriptionTimeout,
+                         @Value("${app.typing.queue-capacity:1024}") int queueCapacity,
+                         @Value("${app.typing.max-subscriptions-per-user:5}") int maxSubscriptionsPerUser) {
+        this(meterRegistry, coalesce, ttl, subscriptionTimeout, queueCapacity, maxSubscriptionsPerUser,
+                System::nanoTime, topic(hazelcastInstance.getIfAvailable()));
+    }
+
+    TypingService(MeterRegistry meterRegistry, Duration coalesce, Duration ttl, Duration subscriptionTimeout,
+                  int queueCapacity, int maxSubscriptionsPerUser, LongSupplier clock, ITopic<TypingEvent> events) {
+        this.coalesceNanos = coalesce.toNanos();
+        this.ttlNanos = ttl.toNanos();
+        this.subscriptionTimeout = subscriptionTimeout;
+        this.maxSubscriptionsPerUser = maxSubscriptionsPerUser;
+        this.clock = clock;
+        // Slow subscribers must not hold up the request that signals, and a lost indicator is harmless, so
+        // events that do not fit into the queue are dropped
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "typing-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> droppedEvent());
+        this.coalescedCounter = Counter.builder("typing.coalesced").register(meterRegistry);
+        this.droppedCounter = Counter.builder("typing.dropped").register(meterRegistry);
+        Gauge.builder("typing.subscribers", rooms,
+                map -> map.values().stream().mapToInt(room -> room.subscribers.size()).sum()).register(meterRegistry);
+        this.events = events;
+        // Also receives the events of this node, they are delivered here like those of every other node
+        if (events != null) {
+            events.addMessageListener(message -> deliver(message.getMessageObject()));
+        }
+    }
+
+    private static ITopic<TypingEvent> topic(HazelcastInstance hazelcastInstance) {
+        return hazelcastInstance != null ? hazelcastInstance.getTopic(EVENTS_TOPIC) : null;
+    }
+
+    public void signal(Long roomId, String username, TypingEvent.Activity activity) {
+        long now = clock.getAsLong();
+        boolean[] send = {false};
+        Room room;
+        if (activity == TypingEvent.Activity.STOPPED) {
+            room = update(roomId, target -> send[0] = target.signals.remove(username) != null);
+        } else {
+            room = update(roomId, target -> target.signals.compute(username, (key, signal) -> {
+                send[0] = signal == null || signal.activity != activity || now - signal.sentAt >= coalesceNanos;
+                return new Signal(activity, send[0] ? now : signal.sentAt, now + ttlNanos);
+            }));
+        }
+        if (send[0]) {
+            relay(room, event(roomId, username, activity));
+        } else if (activity != TypingEvent.Activity.STOPPED) {
+            coalescedCounter.increment();
+        }
+    }
+
+    // Starts with who is typing right now, then follows every change
+    public SseEmitter subscribe(Long roomId, String username) {
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout.toMillis());
+        boolean[] added = {false};
+        userSubscriptions.compute(username, (key, emitters) -> {
+            Set<SseEmitter> target = emitters == null ? ConcurrentHashMap.newKeySet() : emitters;
+            if (target.size() < maxSubscriptionsPerUser) {
+                added[0] = target.add(emitter);
+            }
+            return target.isEmpty() ? null : target;
+        });
+        if (!added[0]) {
+            throw new ApplicationException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Too many open typing streams, close one before opening another.");
+        }
+        Room room = update(roomId, target -> target.subscribers.add(emitter));
+        emitter.onCompletion(() -> unsubscribe(room, username, emitter));
+        emitter.onTimeout(() -> unsubscribe(room, username, emitter));
+        emitter.onError(error -> unsubscribe(room, username, emitter));
+        List<TypingEvent> current = room.signals.entrySet().stream()
+                .map(entry -> event(roomId, entry.getKey(), entry.getValue().activity))
+                .toList();
+        if (!current.isEmpty()) {
+            executor.execute(() -> current.forEach(event -> send(room, emitter, event)));
+        }
+        return emitter;
+    }
+
+    // Callbacks may run more than once for the same emitter, removing it again changes nothing
+    private void unsubscribe(Room room, String username, SseEmitter emitter) {
+        room.subscribers.remove(emitter);
+        userSubscriptions.computeIfPresent(username, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    public List<TypingEvent> getTyping(Long roomId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return List.of();
+        }
+        return room.signals.entrySet().stream()
+                .map(entry -> event(roomId, entry.getKey(), entry.getValue().activity))
+                .toList();
+    }
+
+    // Expired signals end with STOPPED, rooms without signals and subscribers are dropped
+    @Scheduled(fixedDelayString = "${app.typing.sweep-interval:PT1S}")
+    public void expire() {
+        long now = clock.getAsLong();
+        rooms.forEach((roomId, room) -> {
+            room.signals.forEach((username, signal) -> {
+                if (now - signal.expiresAt >= 0 && room.signals.remove(username, signal)) {
+                    relay(room, event(roomId, username, TypingEvent.Activity.STOPPED));
+                }
+            });
+            rooms.computeIfPresent(roomId, (id, target) ->
+                    target.signals.isEmpty() && target.subscribers.isEmpty() ? null : target);
+        });
+    }
+
+    // Rooms change only inside compute, so one cannot be dropped while a signal or subscriber is added to it
+    private Room update(Long roomId, Consumer<Room> change) {
+        return rooms.compute(roomId, (id, room) -> {
+            Room target = room == null ? new Room() : room;
+            change.accept(target);
+            return target;
+        });
+    }
+
+    // Without a cluster, or when the topic cannot be reached, the event still goes to the subscribers of this node
+    private void relay(Room room, TypingEvent event) {
+        if (events != null) {
+            try {
+                events.publish(event);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Could not relay typing event of room {} to other nodes: {}", event.roomId(),
+                        e.getMessage());
+            }
+        }
+        broadcast(room, event);
+    }
+
+    // Rooms without subscribers on this node are not created for an event
+    private void deliver(TypingEvent event) {
+        Room room = rooms.get(event.roomId());
+        if (room != null) {
+            broadcast(room, event);
+        }
+    }
+
+    private void broadcast(Room room, TypingEvent event) {
+        if (!room.subscribers.isEmpty()) {
+            executor.execute(() -> room.subscribers.forEach(emitter -> send(room, emitter, event)));
+        }
+    }
+
+    private void send(Room room, SseEmitter emitter, TypingEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name("typing").data(event));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the emitter callbacks may not have run yet
+            room.subscribers.remove(emitter);
+        }
+    }
+
+    private void droppedEvent() {
+        droppedCounter.increment();
+    }
+
+    private static TypingEvent event(Long roomId, String username, TypingEvent.Activity activity) {
+        return new TypingEvent(activity, roomId, username, System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        rooms.values().forEach(room -> room.subscribers.forEach(SseEmitter::complete));
+    }
+
+    private record Signal(TypingEvent.Activity activity, long sentAt, long expiresAt) {
+    }
+
+    private static final class Room {
+
+        private final Map<String, Signal> signals = new ConcurrentHashMap<>();
+        private final Set<SseEmitter> subscribers = new CopyOnWriteArraySet<>();
+    }
+}
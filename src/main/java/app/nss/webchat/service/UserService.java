@@ -1,5 +1,6 @@
 package app.nss.webchat.service;
 
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.Role;
 import app.nss.webchat.entity.User;
 import app.nss.webchat.entity.UserStatus;
@@ -9,9 +10,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Objects;
@@ -23,17 +26,26 @@ public class UserService {
 
     private final PasswordEncoder passwordEncoder;
 
+    private final TokenService tokenService;
+
+    private final CleanupService cleanupService;
+
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, TokenService tokenService,
+                       CleanupService cleanupService) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.tokenService = tokenService;
+        this.cleanupService = cleanupService;
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "usersCache", key = "{#root.methodName, #root.args}")
     public List<User> getUsers() {
         return userRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "usersCache", key = "{#root.methodName, #root.args}")
     public User getUserById(Long id) {
         return userRepository.findById(id).orElseThrow(
@@ -41,6 +53,7 @@ public class UserService {
         );
     }
 
+    @Transactional(readOnly = true)
     @Cacheable(value = "usersCache", key = "{#root.methodName, #root.args}")
     public User getUserByUserIdentifier(String keyword) {
         User user = userRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase(keyword, keyword);
@@ -50,18 +63,44 @@ public class UserService {
         return user;
     }
 
+    // Usernames are evicted when they change, so a name taken over by a new user never maps to the old id
+    @Transactional(readOnly = true)
+    @Cacheable(value = "userIdsCache", key = "#username")
+    public Long getUserIdByUsername(String username) {
+        User user = userRepository.findByUsername(username);
+        if (user == null) {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "User with username " + username + " not found.");
+        }
+        return user.getId();
+    }
+
     @CachePut(value = "usersCache", key = "#result.id")
+    @Transactional
     public User createUser(String username, String password, String email) {
         User user = new User();
         return setProfileInfo(username, password, email, user);
     }
 
     @CachePut(value = "usersCache", key = "#result.id")
+    @Transactional
     public User createAdmin(String username, String password, String email) {
         User admin = new User(Role.ADMIN);
         return setProfileInfo(username, password, email, admin);
     }
 
+    @Transactional
+    public User authenticate(String username, String password) {
+        User user = userRepository.findByUsername(username);
+        // Users being deleted cannot sign in again, they are told the same as for a wrong password
+        if (user == null || user.getUserStatus() == UserStatus.DELETED
+                || !passwordEncoder.matches(password, user.getPassword())) {
+            throw new ApplicationException(HttpStatus.UNAUTHORIZED, "Invalid username or password.");
+        }
+        user.setUserStatus(UserStatus.ONLINE);
+        return userRepository.save(user);
+    }
+
+    @Transactional
     public User setProfileInfo(String username, String password, String email, User userData) {
         if (userRepository.existsByUsername(username)) {
             throw new ApplicationException(HttpStatus.BAD_REQUEST, "The name has already been taken.");
@@ -79,6 +118,7 @@ public class UserService {
 
     @CacheEvict(value = "usersCache", key = "#id")
     @CachePut(value = "usersCache", key = "#id")
+    @Transactional
     public void uploadAvatar(Long id, String avatar) {
         User user = userRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + id + " not found.")
@@ -87,12 +127,18 @@ public class UserService {
         userRepository.save(user);
     }
 
-    @CacheEvict(value = "usersCache", key = "#id")
+    @Caching(evict = {
+            @CacheEvict(value = "usersCache", key = "#id"),
+            @CacheEvict(value = "userIdsCache", allEntries = true)
+    })
     @CachePut(value = "usersCache", key = "#id")
+    @Transactional
     public void updateUserById(Long id, String username, String password, String email) {
         User user = userRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + id + " not found.")
         );
+        String previousUsername = user.getUsername();
+        Role previousRole = user.getRole();
         if (username != null && !username.isEmpty() &&
                 !Objects.equals(user.getUsername(), username) && !userRepository.existsByUsername(username)) {
             user.setUsername(username);
@@ -100,12 +146,12 @@ public class UserService {
             throw new ApplicationException(
                     HttpStatus.BAD_REQUEST, "Username must be filled completely or this username is already set.");
         }
-        if (password != null && !password.isEmpty() && !Objects.equals(user.getPassword(), password)) {
+        // The password is optional, leaving it out or sending the current one keeps it
+        boolean passwordChanged = password != null && !password.isEmpty()
+                && !passwordEncoder.matches(password, user.getPassword());
+        if (passwordChanged) {
             user.setPassword(password);
             user.encodePassword(passwordEncoder);
-        } else {
-            throw new ApplicationException(
-                    HttpStatus.BAD_REQUEST, "Password must be filled completely or this password is already set.");
         }
         if (email != null && !email.isEmpty() &&
                 !Objects.equals(user.getEmail(), email) && !userRepository.existsByEmail(email)) {
@@ -115,9 +161,15 @@ public class UserService {
                     HttpStatus.BAD_REQUEST, "Email must be filled completely or this email is already set.");
         }
         userRepository.save(user);
+        // Tokens carry the username and role, so they are revoked when either of them or the password changes.
+        // An email change leaves them valid.
+        if (passwordChanged || !previousUsername.equals(user.getUsername()) || previousRole != user.getRole()) {
+            tokenService.revokeAllTokens(previousUsername);
+        }
     }
 
     @CacheEvict(value = "usersCache", key = "#id")
+    @Transactional
     public void updateUserStatusById(Long id, UserStatus status) {
         User user = userRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + id + " not found.")
@@ -126,15 +178,24 @@ public class UserService {
             throw new ApplicationException(
                     HttpStatus.BAD_REQUEST, "Email must be filled completely or this email is already set.");
         }
+        if (status == UserStatus.DELETED || user.getUserStatus() == UserStatus.DELETED) {
+            throw new ApplicationException(HttpStatus.BAD_REQUEST, "Status of a deleted user cannot be changed.");
+        }
         user.setUserStatus(status);
         userRepository.save(user);
     }
 
     @CacheEvict(value = "usersCache", key = "#id")
-    public void deleteUserById(Long id) {
+    @Transactional
+    public CleanupJobResponse deleteUserById(Long id) {
         User user = userRepository.findById(id).orElseThrow(
                 () -> new ApplicationException(HttpStatus.NOT_FOUND, "User with id " + id + " not found.")
         );
-        userRepository.delete(user);
+        // Signed out right away and kept from signing in again, the rows are removed by a background job.
+        // Flushed before the job starts, so the job's delete of the row waits for this transaction to commit.
+        user.setUserStatus(UserStatus.DELETED);
+        userRepository.saveAndFlush(user);
+        tokenService.revokeAllTokens(user.getUsername());
+        return cleanupService.deleteUser(id);
     }
 }
\ No newline at end of file
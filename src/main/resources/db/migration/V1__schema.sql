@@ -0,0 +1,49 @@
+-- Schema as it was created by Hibernate before migrations were introduced. Databases that already have it are
+-- baselined at this version, so this script only runs on empty databases.
+
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE chat_room_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE message_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE notification_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE users
+(
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    username    VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL,
+    password    VARCHAR(255) NOT NULL,
+    avatar      VARCHAR(255),
+    role        VARCHAR(255) CHECK (role IN ('ADMIN', 'USER')),
+    user_status VARCHAR(255) CHECK (user_status IN ('ONLINE', 'OFFLINE'))
+);
+
+CREATE TABLE chat_room
+(
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE participants
+(
+    chat_room_id BIGINT NOT NULL REFERENCES chat_room,
+    user_id      BIGINT NOT NULL REFERENCES users
+);
+
+CREATE TABLE message
+(
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    content    VARCHAR(255) NOT NULL,
+    time_stamp TIMESTAMP(6) NOT NULL,
+    sender     BIGINT       NOT NULL REFERENCES users,
+    room       BIGINT       NOT NULL REFERENCES chat_room
+);
+
+CREATE TABLE notification
+(
+    id         BIGINT       NOT NULL PRIMARY KEY,
+    content    VARCHAR(255) NOT NULL,
+    time_stamp TIMESTAMP(6) NOT NULL,
+    status     VARCHAR(255) CHECK (status IN ('READ', 'UNREAD')),
+    recipient  BIGINT       NOT NULL REFERENCES users
+);
@@ -0,0 +1,26 @@
+-- An index for every filter and sort the repositories use, verified by RepositoryQueryPlanTest. Also runs on
+-- databases baselined at V1, hence IF NOT EXISTS. Unique indexes fail on duplicates, which have to be merged first.
+-- The indexes are built concurrently so writes to the tables go on, which cannot happen inside a transaction
+-- (see the .conf file). A failed build leaves an invalid index behind, drop it before running the migration again.
+
+-- Trigram indexes serve the substring searches, which a b-tree cannot
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_username_key ON users (username);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_email_key ON users (email);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_username_trgm_idx ON users USING gin (upper(username) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_trgm_idx ON users USING gin (upper(email) gin_trgm_ops);
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS chat_room_name_key ON chat_room (name);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS participants_user_idx ON participants (user_id);
+
+-- Room and sender histories are read in time order, the composite indexes return them sorted
+CREATE INDEX CONCURRENTLY IF NOT EXISTS message_room_time_stamp_idx ON message (room, time_stamp);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS message_sender_time_stamp_idx ON message (sender, time_stamp);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS message_content_trgm_idx ON message USING gin (content gin_trgm_ops);
+DROP INDEX CONCURRENTLY IF EXISTS message_room_idx;
+DROP INDEX CONCURRENTLY IF EXISTS message_sender_idx;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS notification_recipient_status_idx ON notification (recipient, status);
+DROP INDEX CONCURRENTLY IF EXISTS notification_recipient_idx;
@@ -0,0 +1,12 @@
+-- One read position per user and room, read receipts are derived from it
+CREATE TABLE read_watermark
+(
+    user_id              BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    room_id              BIGINT       NOT NULL REFERENCES chat_room (id) ON DELETE CASCADE,
+    last_read_message_id BIGINT       NOT NULL,
+    updated_at           TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (user_id, room_id)
+);
+
+-- Receipts are read per room, the primary key leads with the user
+CREATE INDEX read_watermark_room_idx ON read_watermark (room_id);
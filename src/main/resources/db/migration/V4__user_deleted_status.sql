@@ -0,0 +1,3 @@
+-- Users being deleted are marked first, so they cannot sign in while their rows are removed
+ALTER TABLE users DROP CONSTRAINT users_user_status_check;
+ALTER TABLE users ADD CONSTRAINT users_user_status_check CHECK (user_status IN ('ONLINE', 'OFFLINE', 'DELETED'));
@@ -0,0 +1,20 @@
+-- Also runs on databases baselined at V1, where Hibernate may have created the table already, hence IF NOT EXISTS
+CREATE TABLE IF NOT EXISTS import_checkpoint
+(
+    id            VARCHAR(255) NOT NULL PRIMARY KEY,
+    rows_imported BIGINT       NOT NULL,
+    updated_at    TIMESTAMP(6) NOT NULL
+);
+
+-- Adding a participant relies on ON CONFLICT, which needs a unique index. Memberships added twice before it existed
+-- are merged first, the lock keeps new ones from coming in between.
+LOCK TABLE participants IN SHARE ROW EXCLUSIVE MODE;
+
+DELETE
+FROM participants duplicate
+    USING participants kept
+WHERE duplicate.chat_room_id = kept.chat_room_id
+  AND duplicate.user_id = kept.user_id
+  AND duplicate.ctid > kept.ctid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS participants_chat_room_id_user_id_key ON participants (chat_room_id, user_id);
@@ -0,0 +1,122 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.controller.UserController;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitInterceptorTest {
+
+    private static final String SEND = "MessageController.sendMessage";
+    private static final String USERS = "UserController.getUsers";
+    private static final String ROOM = "ChatRoomController.getChatRoomByName";
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = interceptor(Duration.ofSeconds(10));
+    }
+
+    // Test tryAcquire method - low priority endpoints are shed first, critical ones may use the whole limit
+    @Test
+    public void testTryAcquire_Priorities() {
+        List<ConcurrencyLimitInterceptor.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            permits.add(interceptor.tryAcquire(USERS));
+        }
+        assertNull(interceptor.tryAcquire(USERS));
+        for (int i = 0; i < 5; i++) {
+            permits.add(interceptor.tryAcquire(ROOM));
+        }
+        assertNull(interceptor.tryAcquire(ROOM));
+        for (int i = 0; i < 3; i++) {
+            permits.add(interceptor.tryAcquire(SEND));
+        }
+
+        assertNull(interceptor.tryAcquire(SEND));
+        assertFalse(permits.contains(null));
+        assertEquals(1, meterRegistry.get("http.concurrency.rejected").tag("handler", USERS).counter().count());
+    }
+
+    // Test release method - a released permit lets the next request in
+    @Test
+    public void testRelease_FreesPermit() {
+        ConcurrencyLimitInterceptor.Permit first = interceptor.tryAcquire(USERS);
+        interceptor.tryAcquire(USERS);
+        assertNull(interceptor.tryAcquire(USERS));
+
+        interceptor.release(first, false);
+
+        assertNotNull(interceptor.tryAcquire(USERS));
+    }
+
+    // Test release method - fast requests grow the limit while it is used, slow or overloaded ones shrink it
+    @Test
+    public void testRelease_AdaptsLimit() {
+        List<ConcurrencyLimitInterceptor.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            permits.add(interceptor.tryAcquire(SEND));
+        }
+        interceptor.release(permits.get(0), false);
+        assertEquals(11, interceptor.getLimit());
+
+        interceptor.release(permits.get(1), true);
+        assertEquals(9.9, interceptor.getLimit(), 1e-9);
+
+        ConcurrencyLimitInterceptor slow = interceptor(Duration.ZERO);
+        for (int i = 0; i < 30; i++) {
+            slow.release(slow.tryAcquire(SEND), false);
+        }
+        assertEquals(4, slow.getLimit());
+    }
+
+    // Test preHandle method - a shed request gets 503 with Retry-After and holds no permit
+    @Test
+    public void testPreHandle_Shed() throws Exception {
+        HandlerMethod handler = new HandlerMethod(mock(UserController.class),
+                UserController.class.getMethod("getUsers"));
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            assertTrue(interceptor.preHandle(request, new MockHttpServletResponse(), handler));
+            assertNotNull(request.getAttribute(ConcurrencyLimitInterceptor.PERMIT_ATTRIBUTE));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ApplicationException exception = assertThrows(ApplicationException.class,
+                () -> interceptor.preHandle(request, response, handler));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertNull(request.getAttribute(ConcurrencyLimitInterceptor.PERMIT_ATTRIBUTE));
+    }
+
+    // Limit of 10, low priority endpoints get 2 each and 5 together, normal ones 5 each and 9 together
+    @SuppressWarnings("unchecked")
+    private ConcurrencyLimitInterceptor interceptor(Duration latencyTarget) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(meterRegistry);
+        return new ConcurrencyLimitInterceptor(provider, true, 10, 4, 20, latencyTarget, 0.9, Set.of(SEND),
+                Set.of(USERS));
+    }
+}
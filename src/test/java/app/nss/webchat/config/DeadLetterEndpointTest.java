@@ -0,0 +1,163 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.event.MessageEventDeserializer;
+import app.nss.webchat.dto.event.MessageEventSerializer;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@EmbeddedKafka(partitions = 1, topics = {KafkaTopConfig.MESSAGES_TOPIC, KafkaTopConfig.DEAD_LETTER_TOPIC})
+public class DeadLetterEndpointTest {
+
+    private static final TopicPartition MESSAGES = new TopicPartition(KafkaTopConfig.MESSAGES_TOPIC, 0);
+
+    @TempDir
+    Path spillDirectory;
+
+    private final EmbeddedKafkaBroker broker = EmbeddedKafkaCondition.getBroker();
+    private DefaultKafkaConsumerFactory<String, MessageEvent> consumerFactory;
+    private DefaultKafkaProducerFactory<String, MessageEvent> producerFactory;
+    private DefaultKafkaProducerFactory<String, byte[]> deadLetterProducerFactory;
+    private KafkaTemplate<String, byte[]> deadLetterTemplate;
+    private KafkaPublisher kafkaPublisher;
+    private DeadLetterEndpoint deadLetterEndpoint;
+
+    @BeforeEach
+    public void setUp() {
+        consumerFactory = new DefaultKafkaConsumerFactory<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class,
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, MessageEventDeserializer.class,
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 2));
+        producerFactory = new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, MessageEventSerializer.class));
+        deadLetterProducerFactory = new DefaultKafkaProducerFactory<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class));
+        deadLetterTemplate = new KafkaTemplate<>(deadLetterProducerFactory);
+        kafkaPublisher = spy(new KafkaPublisher(new KafkaTemplate<>(producerFactory), new SimpleMeterRegistry(), 16,
+                KafkaPublisher.OverflowPolicy.FAIL_FAST, spillDirectory));
+        deadLetterEndpoint = new DeadLetterEndpoint(consumerFactory, kafkaPublisher, Duration.ofSeconds(30));
+        // Dead letters left over from an earlier test
+        deadLetterEndpoint.replay(null);
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        kafkaPublisher.shutdown();
+        producerFactory.destroy();
+        deadLetterProducerFactory.destroy();
+    }
+
+    // Test replay method - dead letters go back to the messages topic once, undecodable records are skipped
+    @Test
+    public void testReplay() throws Exception {
+        long before = messagesEndOffset();
+        deadLetter("1", MessageEventSerializer.encode(event(1L)));
+        deadLetter("2", "not an event".getBytes(StandardCharsets.UTF_8));
+        deadLetter("3", MessageEventSerializer.encode(event(3L)));
+
+        DeadLetterEndpoint.DeadLetterReport report = deadLetterEndpoint.replay(null);
+
+        assertEquals(2, report.replayed());
+        assertEquals(1, report.skipped());
+        assertEquals(0, report.pending());
+        assertNull(report.error());
+        assertEquals(before + 2, messagesEndOffset());
+        assertEquals(0, deadLetterEndpoint.replay(null).replayed());
+        assertEquals(0, deadLetterEndpoint.deadLetters().pending());
+    }
+
+    // Test replay method - a limit stops the replay early, the next one continues where it stopped
+    @Test
+    public void testReplay_Limit() throws Exception {
+        long before = messagesEndOffset();
+        for (long id = 1; id <= 5; id++) {
+            deadLetter(String.valueOf(id), MessageEventSerializer.encode(event(id)));
+        }
+
+        DeadLetterEndpoint.DeadLetterReport first = deadLetterEndpoint.replay(3);
+        DeadLetterEndpoint.DeadLetterReport second = deadLetterEndpoint.replay(null);
+
+        assertEquals(3, first.replayed());
+        assertEquals(2, first.pending());
+        assertEquals(2, second.replayed());
+        assertEquals(0, second.pending());
+        assertEquals(before + 5, messagesEndOffset());
+    }
+
+    // Test replay method - a full publisher stops the replay, acknowledged records are not sent again on resume
+    @Test
+    public void testReplay_ResumeAfterRejection() throws Exception {
+        long before = messagesEndOffset();
+        for (long id = 1; id <= 5; id++) {
+            deadLetter(String.valueOf(id), MessageEventSerializer.encode(event(id)));
+        }
+        doThrow(new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, "Message delivery is overloaded."))
+                .when(kafkaPublisher).publishAcknowledged(eq(KafkaTopConfig.MESSAGES_TOPIC), eq("4"), any());
+
+        DeadLetterEndpoint.DeadLetterReport stopped = deadLetterEndpoint.replay(null);
+
+        assertEquals(3, stopped.replayed());
+        assertEquals(2, stopped.pending());
+        assertEquals("Message delivery is overloaded.", stopped.error());
+        assertEquals(before + 3, messagesEndOffset());
+
+        reset(kafkaPublisher);
+        DeadLetterEndpoint.DeadLetterReport resumed = deadLetterEndpoint.replay(null);
+
+        assertEquals(2, resumed.replayed());
+        assertEquals(0, resumed.pending());
+        assertEquals(before + 5, messagesEndOffset());
+    }
+
+    private void deadLetter(String key, byte[] value) throws Exception {
+        deadLetterTemplate.send(new ProducerRecord<>(KafkaTopConfig.DEAD_LETTER_TOPIC, key, value)).get();
+    }
+
+    private long messagesEndOffset() {
+        try (Consumer<String, MessageEvent> consumer = consumerFactory.createConsumer()) {
+            return consumer.endOffsets(List.of(MESSAGES)).get(MESSAGES);
+        }
+    }
+
+    private static MessageEvent event(Long id) {
+        return new MessageEvent(MessageEvent.Type.CREATED, id, 1L, 1L, 1000L, "Message " + id);
+    }
+}
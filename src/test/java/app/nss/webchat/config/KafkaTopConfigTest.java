@@ -0,0 +1,38 @@
+package app.nss.webchat.config;
+
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EmbeddedKafka(partitions = 2, topics = KafkaTopConfig.MESSAGES_TOPIC)
+public class KafkaTopConfigTest {
+
+    private final EmbeddedKafkaBroker broker = EmbeddedKafkaCondition.getBroker();
+    private final KafkaAdmin kafkaAdmin = new KafkaAdmin(
+            Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()));
+
+    // Test isMissing method - an existing topic is left alone, so a raised partition count does not grow it
+    @Test
+    public void testIsMissing_Existing() {
+        NewTopic topic = TopicBuilder.name(KafkaTopConfig.MESSAGES_TOPIC).partitions(6).build();
+
+        assertFalse(KafkaTopConfig.isMissing(kafkaAdmin, topic));
+    }
+
+    // Test isMissing method - a topic the broker does not know is created with the configured count
+    @Test
+    public void testIsMissing_Unknown() {
+        NewTopic topic = TopicBuilder.name("unknown-topic").partitions(6).build();
+
+        assertTrue(KafkaTopConfig.isMissing(kafkaAdmin, topic));
+    }
+}
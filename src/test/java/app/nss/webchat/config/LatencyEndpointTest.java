@@ -0,0 +1,47 @@
+package app.nss.webchat.config;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyEndpointTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Test latency method - one entry per handler and status class with its percentiles
+    @Test
+    public void testLatency() {
+        Timer fast = timer("MessageController.sendMessage", "2xx");
+        for (int i = 1; i <= 100; i++) {
+            fast.record(Duration.ofMillis(i));
+        }
+        timer("MessageController.sendMessage", "5xx").record(Duration.ofMillis(800));
+        timer("ChatRoomController.getChatRooms", "2xx").record(Duration.ofMillis(3));
+
+        List<LatencyEndpoint.HandlerLatency> latency = new LatencyEndpoint(meterRegistry).latency();
+
+        assertEquals(List.of("ChatRoomController.getChatRooms 2xx", "MessageController.sendMessage 2xx",
+                        "MessageController.sendMessage 5xx"),
+                latency.stream().map(entry -> entry.handler() + " " + entry.status()).toList());
+        LatencyEndpoint.HandlerLatency send = latency.get(1);
+        assertEquals(100, send.count());
+        assertEquals(50, send.p50Ms(), 5);
+        assertEquals(99, send.p99Ms(), 5);
+        assertEquals(100, send.maxMs(), 0.001);
+        assertEquals(800, latency.get(2).p50Ms(), 40);
+    }
+
+    private Timer timer(String handler, String status) {
+        return Timer.builder(LoggingInterceptor.LATENCY_METRIC)
+                .tag("handler", handler)
+                .tag("status", status)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .percentilePrecision(2)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,143 @@
+package app.nss.webchat.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoggingInterceptorTest {
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger("access");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HandlerMethod handler;
+
+    static class SampleController {
+
+        public String get() {
+            return "ok";
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws NoSuchMethodException {
+        appender.start();
+        accessLogger.addAppender(appender);
+        handler = new HandlerMethod(new SampleController(), SampleController.class.getMethod("get"));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        accessLogger.detachAppender(appender);
+    }
+
+    // Test preHandle method - every request gets its own id in the response header and the access record
+    @Test
+    public void testPreHandle_RequestIdHeader() {
+        LoggingInterceptor interceptor = interceptor(1.0);
+
+        MockHttpServletResponse first = handle(interceptor, 200, null);
+        MockHttpServletResponse second = handle(interceptor, 200, null);
+
+        String firstId = first.getHeader(LoggingInterceptor.REQUEST_ID_HEADER);
+        String secondId = second.getHeader(LoggingInterceptor.REQUEST_ID_HEADER);
+        assertEquals("node1-1", firstId);
+        assertEquals("node1-2", secondId);
+        assertEquals(2, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().startsWith("id=node1-1 method=GET uri=\"/sample\""));
+    }
+
+    // Test preHandle method - an async re-dispatch keeps the id of the original request
+    @Test
+    public void testPreHandle_AsyncDispatchKeepsId() {
+        LoggingInterceptor interceptor = interceptor(1.0);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sample");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        interceptor.preHandle(request, new MockHttpServletResponse(), handler);
+
+        assertEquals("node1-1", request.getAttribute(LoggingInterceptor.REQUEST_ID_ATTRIBUTE));
+        assertEquals("node1-1", response.getHeader(LoggingInterceptor.REQUEST_ID_HEADER));
+    }
+
+    // Test afterCompletion method - without sampling no successful request is written, failures always are
+    @Test
+    public void testAfterCompletion_FailuresAlwaysLogged() {
+        LoggingInterceptor interceptor = interceptor(0.0);
+
+        for (int i = 0; i < 20; i++) {
+            handle(interceptor, 200, null);
+        }
+        handle(interceptor, 503, null);
+        handle(interceptor, 200, new IllegalStateException("boom"));
+
+        List<String> records = appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+        assertEquals(2, records.size(), records.toString());
+        assertTrue(records.get(0).contains("status=503"));
+        assertTrue(records.get(1).contains("error=\"IllegalStateException\""));
+    }
+
+    // Test afterCompletion method - successful requests are written at about the sample rate
+    @Test
+    public void testAfterCompletion_Sampled() {
+        LoggingInterceptor interceptor = interceptor(0.25);
+
+        for (int i = 0; i < 2000; i++) {
+            handle(interceptor, 200, null);
+        }
+
+        int written = appender.list.size();
+        assertTrue(written > 350 && written < 650, "written " + written);
+    }
+
+    // Test afterCompletion method - latency is recorded per handler and status class, with percentiles
+    @Test
+    public void testAfterCompletion_LatencyPerHandlerAndStatus() {
+        LoggingInterceptor interceptor = interceptor(0.0);
+
+        handle(interceptor, 200, null);
+        handle(interceptor, 201, null);
+        handle(interceptor, 404, null);
+        handle(interceptor, 200, new IllegalStateException("boom"));
+
+        Timer ok = meterRegistry.get(LoggingInterceptor.LATENCY_METRIC)
+                .tags("handler", "SampleController.get", "status", "2xx").timer();
+        assertEquals(2, ok.count());
+        assertEquals(1, meterRegistry.get(LoggingInterceptor.LATENCY_METRIC).tag("status", "4xx").timer().count());
+        assertEquals(1, meterRegistry.get(LoggingInterceptor.LATENCY_METRIC).tag("status", "5xx").timer().count());
+        assertEquals(List.of(0.5, 0.99, 0.999), Arrays.stream(ok.takeSnapshot().percentileValues())
+                .map(ValueAtPercentile::percentile).toList());
+    }
+
+    private LoggingInterceptor interceptor(double sampleRate) {
+        return new LoggingInterceptor(new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry))
+                .getBeanProvider(MeterRegistry.class), "node1", sampleRate);
+    }
+
+    private MockHttpServletResponse handle(LoggingInterceptor interceptor, int status, Exception exception) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sample");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        response.setStatus(status);
+        interceptor.afterCompletion(request, response, handler, exception);
+        return response;
+    }
+}
@@ -0,0 +1,178 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.config.utils.KafkaListeners;
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ChatRoomRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@EmbeddedKafka(partitions = 2, topics = {KafkaTopConfig.MESSAGES_TOPIC, KafkaTopConfig.FAILED_TOPIC,
+        KafkaTopConfig.FAILED_TOPIC + "-retry-0"})
+public class PartitionEndpointTest {
+
+    private static final String RETRY_TOPIC = KafkaTopConfig.FAILED_TOPIC + "-retry-0";
+
+    private final EmbeddedKafkaBroker broker = EmbeddedKafkaCondition.getBroker();
+    private final KafkaPublisher kafkaPublisher = mock(KafkaPublisher.class);
+    private final Runnable resume = mock(Runnable.class);
+    private final ChatRoomRepository chatRoomRepository = mock(ChatRoomRepository.class);
+    private final KafkaListenerEndpointRegistry listenerRegistry = mock(KafkaListenerEndpointRegistry.class);
+    private PartitionEndpoint partitionEndpoint;
+
+    @BeforeEach
+    public void setUp() throws InterruptedException {
+        when(kafkaPublisher.pause()).thenReturn(resume);
+        when(chatRoomRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L));
+        partitionEndpoint = new PartitionEndpoint(
+                new KafkaAdmin(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString())),
+                kafkaPublisher, chatRoomRepository, listenerRegistry, Duration.ofSeconds(1));
+    }
+
+    // Test partitions method - lag is summed over every active group on the room topics, stopped groups are left out
+    @Test
+    public void testPartitions_LagOfEveryGroup() throws Exception {
+        send(KafkaTopConfig.MESSAGES_TOPIC, 3);
+        send(RETRY_TOPIC, 2);
+        try (Consumer<String, String> timeline = member("timeline-lag", KafkaTopConfig.MESSAGES_TOPIC);
+             Consumer<String, String> retry = member("retry-lag", RETRY_TOPIC);
+             Consumer<String, String> stopped = consumer("stopped-lag")) {
+            commitStart(timeline, KafkaTopConfig.MESSAGES_TOPIC);
+            commitStart(retry, RETRY_TOPIC);
+            stopped.assign(List.of(new TopicPartition(KafkaTopConfig.MESSAGES_TOPIC, 0)));
+            commitStart(stopped, KafkaTopConfig.MESSAGES_TOPIC);
+
+            PartitionEndpoint.PartitionReport report = partitionEndpoint.partitions(null);
+
+            assertEquals(3, report.groupLag().get("timeline-lag"));
+            assertEquals(2, report.groupLag().get("retry-lag"));
+            assertFalse(report.groupLag().containsKey("stopped-lag"));
+            assertTrue(report.consumerLag() >= 5);
+        }
+    }
+
+    // Test grow method - a group with lag blocks the change, once drained the topic grows and the listener scales
+    @Test
+    public void testGrow_WaitsForEveryGroup() throws Exception {
+        @SuppressWarnings("unchecked")
+        ConcurrentMessageListenerContainer<String, String> listener = mock(ConcurrentMessageListenerContainer.class);
+        when(listener.getConcurrency()).thenReturn(2);
+        when(listener.isRunning()).thenReturn(true);
+        when(listenerRegistry.getListenerContainer(KafkaListeners.MESSAGES_LISTENER)).thenReturn(listener);
+        send(KafkaTopConfig.FAILED_TOPIC, 1);
+        try (Consumer<String, String> retry = member("retry-grow", KafkaTopConfig.FAILED_TOPIC)) {
+            commitStart(retry, KafkaTopConfig.FAILED_TOPIC);
+
+            ApplicationException exception = assertThrows(ApplicationException.class,
+                    () -> partitionEndpoint.grow(3));
+
+            assertEquals(HttpStatus.CONFLICT, exception.getHttpStatus());
+            assertEquals(2, partitionEndpoint.partitions(null).partitions());
+            verify(resume).run();
+
+            retry.commitSync(endOffsets(retry, KafkaTopConfig.FAILED_TOPIC));
+            PartitionEndpoint.PartitionReport report = partitionEndpoint.grow(3);
+
+            assertEquals(3, report.target());
+            assertEquals(3, partitionEndpoint.partitions(null).partitions());
+            verify(listener).stop();
+            verify(listener).setConcurrency(3);
+            verify(listener).start();
+            verify(resume, times(2)).run();
+        }
+    }
+
+    // Test partitionFor method - matches the producer's partitioner
+    @Test
+    public void testPartitionFor_MatchesProducer() {
+        for (long roomId = 1; roomId <= 1000; roomId++) {
+            byte[] key = String.valueOf(roomId).getBytes(StandardCharsets.UTF_8);
+
+            assertEquals(BuiltInPartitioner.partitionForKey(key, 6), PartitionEndpoint.partitionFor(roomId, 6));
+        }
+    }
+
+    // Test partitionFor method - growing the topic moves only part of the rooms
+    @Test
+    public void testPartitionFor_Growth() {
+        int moved = 0;
+        for (long roomId = 1; roomId <= 1000; roomId++) {
+            if (PartitionEndpoint.partitionFor(roomId, 6) != PartitionEndpoint.partitionFor(roomId, 12)) {
+                moved++;
+            }
+        }
+        assertTrue(moved > 0 && moved < 1000);
+    }
+
+    private void send(String topic, int records) throws Exception {
+        try (Producer<String, String> producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new StringSerializer(), new StringSerializer())) {
+            for (int i = 0; i < records; i++) {
+                producer.send(new ProducerRecord<>(topic, String.valueOf(i), "event")).get();
+            }
+        }
+    }
+
+    private Consumer<String, String> consumer(String group) {
+        return new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.GROUP_ID_CONFIG, group,
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false),
+                new StringDeserializer(), new StringDeserializer());
+    }
+
+    // A consumer that joined its group, so the group has a member while the test runs
+    private Consumer<String, String> member(String group, String topic) {
+        Consumer<String, String> consumer = consumer(group);
+        consumer.subscribe(List.of(topic));
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (consumer.assignment().isEmpty() && System.nanoTime() < deadline) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+        return consumer;
+    }
+
+    private static void commitStart(Consumer<String, String> consumer, String topic) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        consumer.partitionsFor(topic).forEach(partition ->
+                offsets.put(new TopicPartition(topic, partition.partition()), new OffsetAndMetadata(0)));
+        consumer.commitSync(offsets);
+    }
+
+    private static Map<TopicPartition, OffsetAndMetadata> endOffsets(Consumer<String, String> consumer, String topic) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                .map(partition -> new TopicPartition(topic, partition.partition())).toList();
+        consumer.endOffsets(partitions).forEach((partition, offset) -> offsets.put(partition, new OffsetAndMetadata(offset)));
+        return offsets;
+    }
+}
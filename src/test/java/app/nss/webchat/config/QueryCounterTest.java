@@ -0,0 +1,108 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.entity.ChatRoom;
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.entity.Notification;
+import app.nss.webchat.entity.NotificationStatus;
+import app.nss.webchat.entity.User;
+import app.nss.webchat.repository.ChatRoomRepository;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// H2 cannot run the Postgres migrations, the schema comes from the entities here
+@DataJpaTest(properties = {"spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=create-drop"})
+@Import(QueryCounter.class)
+public class QueryCounterTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    private final List<User> users = new ArrayList<>();
+    private final List<ChatRoom> rooms = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@chat.cz");
+            user.setPassword("password" + i);
+            users.add(entityManager.persist(user));
+            ChatRoom room = new ChatRoom();
+            room.setName("room" + i);
+            room.setDescription("Room number " + i);
+            room.setParticipants(new ArrayList<>(users));
+            rooms.add(entityManager.persist(room));
+        }
+        for (int i = 0; i < 9; i++) {
+            Message message = new Message();
+            message.setContent("Message " + i);
+            message.setTimeStamp(LocalDateTime.of(2023, 6, 1, 12, i));
+            message.setSender(users.get(i % 3));
+            message.setRoom(rooms.get(i / 3));
+            entityManager.persist(message);
+            Notification notification = new Notification();
+            notification.setContent("Notification " + i);
+            notification.setTimeStamp(LocalDateTime.of(2023, 6, 1, 12, i));
+            notification.setStatus(NotificationStatus.UNREAD);
+            notification.setRecipient(users.get(0));
+            entityManager.persist(notification);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    // Test mark method - a message list is one statement, whatever rooms and senders it spans
+    @Test
+    public void testMark_MessagesBySender() {
+        QueryCounter.Mark mark = QueryCounter.mark();
+
+        List<Message> messages = messageRepository.findAllBySenderIdOrderByTimeStampAsc(users.get(0).getId());
+        messages.forEach(message -> assertNotNull(message.getRoom().getId()));
+
+        assertEquals(3, messages.size());
+        assertEquals(1, mark.statements());
+    }
+
+    // Test mark method - the timeline graph fetches senders with the messages
+    @Test
+    public void testMark_Timeline() {
+        QueryCounter.Mark mark = QueryCounter.mark();
+
+        List<Message> messages = messageRepository.findTimelineForChat(rooms.get(0).getId());
+        messages.forEach(message -> assertNotNull(message.getSender().getUsername()));
+
+        assertEquals(3, messages.size());
+        assertEquals(1, mark.statements());
+    }
+
+    // Test mark method - room and notification lists do not load their associations
+    @Test
+    public void testMark_RoomsAndNotifications() {
+        QueryCounter.Mark mark = QueryCounter.mark();
+
+        assertEquals(3, chatRoomRepository.findAllByParticipantsUsername("user0").size());
+        assertEquals(9, notificationRepository.findByRecipientIdAndStatus(
+                users.get(0).getId(), NotificationStatus.UNREAD).size());
+
+        assertEquals(2, mark.statements());
+    }
+}
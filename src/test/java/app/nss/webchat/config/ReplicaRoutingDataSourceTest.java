@@ -0,0 +1,128 @@
+package app.nss.webchat.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ResultSet lag;
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        Statement statement = mock(Statement.class);
+        lag = mock(ResultSet.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaRoutingDataSource.LAG_QUERY)).thenReturn(lag);
+        meterRegistry = new SimpleMeterRegistry();
+        routingDataSource = new ReplicaRoutingDataSource(primary, replica, Duration.ofSeconds(5), meterRegistry);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    // Test getConnection method - read-only transactions use the replica once it caught up
+    @Test
+    public void testGetConnection_ReadOnlyOnReplica() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(0.5);
+        routingDataSource.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection, routingDataSource.getConnection());
+        assertEquals(0.5, meterRegistry.get("datasource.replica.lag").gauge().value());
+        assertEquals(1, meterRegistry.get("datasource.routing.connections").tag("target", "replica").counter().count());
+    }
+
+    // Test getConnection method - writes always use the primary
+    @Test
+    public void testGetConnection_WriteOnPrimary() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(0.0);
+        routingDataSource.checkLag();
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    // Test getConnection method - reads use the primary until the replica was checked
+    @Test
+    public void testGetConnection_UncheckedReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertFalse(routingDataSource.isReplicaUsable());
+    }
+
+    // Test checkLag method - reads fall back to the primary while the replica lags and return once it caught up
+    @Test
+    public void testCheckLag_Lagging() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(30.0, 1.0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        routingDataSource.checkLag();
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(0, meterRegistry.get("datasource.replica.usable").gauge().value());
+
+        routingDataSource.checkLag();
+        assertSame(replicaConnection, routingDataSource.getConnection());
+        assertEquals(1, meterRegistry.get("datasource.replica.usable").gauge().value());
+    }
+
+    // Test checkLag method - reads fall back to the primary when the replica cannot be reached
+    @Test
+    public void testCheckLag_Unreachable() throws SQLException {
+        when(lag.getDouble(1)).thenReturn(0.0);
+        routingDataSource.checkLag();
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        routingDataSource.checkLag();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertTrue(Double.isNaN(meterRegistry.get("datasource.replica.lag").gauge().value()));
+    }
+
+    // Test startLagChecks method - checks run on their own thread, so a replica that hangs blocks no other job
+    @Test
+    public void testStartLagChecks_OwnThread() throws Exception {
+        CompletableFuture<String> checkThread = new CompletableFuture<>();
+        when(replica.getConnection()).thenAnswer(invocation -> {
+            checkThread.complete(Thread.currentThread().getName());
+            return replicaConnection;
+        });
+        when(lag.getDouble(1)).thenReturn(0.0);
+
+        routingDataSource.startLagChecks(Duration.ofMinutes(1));
+        try {
+            assertEquals("replica-lag-check", checkThread.get(5, TimeUnit.SECONDS));
+        } finally {
+            routingDataSource.shutdown();
+        }
+    }
+}
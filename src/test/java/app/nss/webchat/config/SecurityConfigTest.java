@@ -0,0 +1,59 @@
+package app.nss.webchat.config;
+
+import app.nss.webchat.exception.ApplicationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SecurityConfigTest {
+
+    private static final String OVERLOADED = "Authentication is overloaded, please try again later.";
+
+    // Test authenticationProvider method - a saturated hashing pool ends as 503 at the basic auth entry point
+    @Test
+    public void testBasicAuth_HashingOverloaded() throws Exception {
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        when(passwordEncoder.matches(any(), anyString()))
+                .thenThrow(new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, OVERLOADED));
+        DaoAuthenticationProvider provider = SecurityConfig.authenticationProvider(
+                username -> new User(username, "hash", List.of()), passwordEncoder);
+
+        AuthenticationException failure = assertThrows(InternalAuthenticationServiceException.class,
+                () -> provider.authenticate(UsernamePasswordAuthenticationToken.unauthenticated("alice", "secret")));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SecurityConfig.basicAuthenticationEntryPoint().commence(new MockHttpServletRequest(), response, failure);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), response.getStatus());
+        assertEquals("1", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertTrue(response.getContentAsString().contains(OVERLOADED));
+    }
+
+    // Test basicAuthenticationEntryPoint method - wrong credentials still get the basic auth challenge
+    @Test
+    public void testBasicAuth_BadCredentials() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        SecurityConfig.basicAuthenticationEntryPoint().commence(new MockHttpServletRequest(), response,
+                new BadCredentialsException("Bad credentials"));
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), response.getStatus());
+        assertEquals("Basic realm=\"Realm\"", response.getHeader(HttpHeaders.WWW_AUTHENTICATE));
+    }
+}
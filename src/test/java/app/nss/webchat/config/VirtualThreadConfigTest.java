@@ -0,0 +1,102 @@
+package app.nss.webchat.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.config.TaskManagementConfigUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadConfigTest {
+
+    // Durations in @Value need Boot's conversion service, which a plain context does not have
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withInitializer(context -> context.getBeanFactory()
+                    .setConversionService(ApplicationConversionService.getSharedInstance()))
+            .withUserConfiguration(VirtualThreadConfig.class, VirtualThreadPinningMonitor.class, MetricsConfig.class);
+
+    @Configuration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    // Test configuration - by default neither the executors, @Async nor the pinning monitor are set up
+    @Test
+    public void testVirtualThreadsOff() {
+        contextRunner.run(context -> {
+            assertFalse(context.containsBean(VirtualThreadConfig.KAFKA_LISTENER_EXECUTOR));
+            assertFalse(context.containsBean(AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME));
+            assertFalse(context.containsBean(TaskManagementConfigUtils.ASYNC_ANNOTATION_PROCESSOR_BEAN_NAME));
+            assertTrue(context.getBeansOfType(VirtualThreadPinningMonitor.class).isEmpty());
+        });
+    }
+
+    // Test configuration - the property switches every executor to virtual threads and enables @Async
+    @Test
+    public void testVirtualThreadsOn() {
+        contextRunner.withPropertyValues("app.threads.virtual=true").run(context -> {
+            assertTrue(context.containsBean(TaskManagementConfigUtils.ASYNC_ANNOTATION_PROCESSOR_BEAN_NAME));
+            assertTrue(context.getBean(VirtualThreadPinningMonitor.class).isRunning());
+            assertTrue(runsVirtual(context.getBean(VirtualThreadConfig.KAFKA_LISTENER_EXECUTOR,
+                    AsyncTaskExecutor.class)));
+            assertTrue(runsVirtual(context.getBean(AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME,
+                    AsyncTaskExecutor.class)));
+        });
+    }
+
+    // Test VirtualThreadPinningMonitor - a virtual thread blocking inside synchronized is counted per site
+    @Test
+    public void testPinningMonitor() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(5));
+        monitor.start();
+        try {
+            Object lock = new Object();
+            Thread.ofVirtual().start(() -> {
+                synchronized (lock) {
+                    sleep(50);
+                }
+            }).join();
+
+            // JFR hands events to the stream about once a second
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (meterRegistry.find("jvm.threads.virtual.pinned").counter() == null
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertNotNull(meterRegistry.find("jvm.threads.virtual.pinned").counter(), "no pinning recorded");
+            assertTrue(meterRegistry.get("jvm.threads.virtual.pinned").counter().getId().getTag("site")
+                    .startsWith(VirtualThreadConfigTest.class.getName()));
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private static boolean runsVirtual(AsyncTaskExecutor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+        return virtual.get(5, TimeUnit.SECONDS);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
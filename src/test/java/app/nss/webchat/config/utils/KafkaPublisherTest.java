@@ -0,0 +1,126 @@
+package app.nss.webchat.config.utils;
+
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class KafkaPublisherTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, MessageEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private KafkaPublisher kafkaPublisher;
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        kafkaPublisher.shutdown();
+    }
+
+    // Test publish method - full window fails fast and frees up on acknowledgement
+    @Test
+    public void testPublish_FailFast() throws InterruptedException {
+        CompletableFuture<SendResult<String, MessageEvent>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(pending);
+        kafkaPublisher = new KafkaPublisher(kafkaTemplate, meterRegistry, 1,
+                KafkaPublisher.OverflowPolicy.FAIL_FAST, spillDirectory);
+
+        kafkaPublisher.publish("messages", "1", event("first"));
+        ApplicationException exception = assertThrows(ApplicationException.class,
+                () -> kafkaPublisher.publish("messages", "1", event("second")));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+
+        verify(kafkaTemplate, timeout(1000)).send("messages", "1", event("first"));
+        pending.complete(null);
+        awaitNoneInFlight();
+        kafkaPublisher.publish("messages", "1", event("third"));
+
+        verify(kafkaTemplate, timeout(1000)).send("messages", "1", event("third"));
+        assertEquals(1, meterRegistry.get("kafka.publish.rejected").counter().count());
+        assertEquals(2, meterRegistry.get("kafka.publish").tag("result", "success").counter().count());
+    }
+
+    // Test publish and replaySpilled methods - overflow goes to disk and is replayed later
+    @Test
+    public void testPublish_Spill() throws Exception {
+        CompletableFuture<SendResult<String, MessageEvent>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(pending);
+        kafkaPublisher = new KafkaPublisher(kafkaTemplate, meterRegistry, 1,
+                KafkaPublisher.OverflowPolicy.SPILL, spillDirectory);
+
+        kafkaPublisher.publish("messages", "1", event("first"));
+        kafkaPublisher.publish("messages", "2", event("second\twith tab"));
+
+        assertEquals(1, Files.readAllLines(spillDirectory.resolve("spill.log")).size());
+        verify(kafkaTemplate, timeout(1000)).send("messages", "1", event("first"));
+
+        pending.complete(null);
+        awaitNoneInFlight();
+        kafkaPublisher.replaySpilled();
+
+        verify(kafkaTemplate, timeout(1000)).send("messages", "2", event("second\twith tab"));
+        assertFalse(Files.exists(spillDirectory.resolve("spill.log")));
+    }
+
+    // Test reserve method - a full window rejects the reservation, a reserved event is never rejected
+    @Test
+    public void testReserve_FailFast() throws InterruptedException {
+        CompletableFuture<SendResult<String, MessageEvent>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(), any(), any())).thenReturn(pending);
+        kafkaPublisher = new KafkaPublisher(kafkaTemplate, meterRegistry, 1,
+                KafkaPublisher.OverflowPolicy.FAIL_FAST, spillDirectory);
+
+        KafkaPublisher.Reservation reservation = kafkaPublisher.reserve();
+        ApplicationException exception = assertThrows(ApplicationException.class, kafkaPublisher::reserve);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getHttpStatus());
+        kafkaPublisher.publish(reservation, "messages", "1", event("first"));
+        reservation.close();
+
+        verify(kafkaTemplate, timeout(1000)).send("messages", "1", event("first"));
+        assertEquals(1, meterRegistry.get("kafka.publish.in-flight").gauge().value());
+        pending.complete(null);
+        awaitNoneInFlight();
+        assertEquals(0, meterRegistry.get("kafka.publish.in-flight").gauge().value());
+    }
+
+    // Test reserve method - closing a reservation whose write failed gives its permit back
+    @Test
+    public void testReserve_Unused() {
+        kafkaPublisher = new KafkaPublisher(kafkaTemplate, meterRegistry, 1,
+                KafkaPublisher.OverflowPolicy.FAIL_FAST, spillDirectory);
+
+        kafkaPublisher.reserve().close();
+
+        assertDoesNotThrow(() -> kafkaPublisher.reserve().close());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    private void awaitNoneInFlight() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (meterRegistry.get("kafka.publish.in-flight").gauge().value() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static MessageEvent event(String content) {
+        return new MessageEvent(MessageEvent.Type.CREATED, 1L, 1L, 1L, 1_700_000_000_000L, content);
+    }
+}
@@ -0,0 +1,112 @@
+package app.nss.webchat.config.utils;
+
+import app.nss.webchat.config.KafkaTopConfig;
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.event.MessageEventDeserializer;
+import app.nss.webchat.dto.event.MessageEventSerializer;
+import app.nss.webchat.service.RoomTimelineService;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.condition.EmbeddedKafkaCondition;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@EmbeddedKafka(partitions = 1, topics = KafkaTopConfig.MESSAGES_TOPIC)
+public class RoomTimelineListenerTest {
+
+    private final EmbeddedKafkaBroker broker = EmbeddedKafkaCondition.getBroker();
+    private final RoomTimelineService roomTimelineService = mock(RoomTimelineService.class);
+    private Producer<String, MessageEvent> producer;
+    private RoomTimelineListener roomTimelineListener;
+
+    @BeforeEach
+    public void setUp() {
+        producer = new KafkaProducer<>(Map.of(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()),
+                new StringSerializer(), new MessageEventSerializer());
+        DefaultKafkaConsumerFactory<String, MessageEvent> consumerFactory = new DefaultKafkaConsumerFactory<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class,
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, MessageEventDeserializer.class));
+        roomTimelineListener = new RoomTimelineListener(consumerFactory, roomTimelineService, Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        roomTimelineListener.stop();
+        producer.close();
+    }
+
+    // Test start method - only events published after the start are applied, no consumer group is left behind
+    @Test
+    public void testStart_AppliesNewEvents() throws Exception {
+        MessageEvent before = event(1L);
+        MessageEvent after = event(2L);
+        send(before, null);
+
+        roomTimelineListener.start();
+        verify(roomTimelineService, timeout(10000)).setLive(true);
+        send(after, null);
+
+        verify(roomTimelineService, timeout(10000)).apply(after);
+        verify(roomTimelineService, never()).apply(before);
+        try (AdminClient admin = AdminClient.create(
+                Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            assertTrue(admin.listConsumerGroups().all().get().isEmpty());
+        }
+
+        roomTimelineListener.stop();
+
+        verify(roomTimelineService).setLive(false);
+        assertFalse(roomTimelineListener.isRunning());
+    }
+
+    // Test start method - a partition added while running is followed from its start
+    @Test
+    public void testStart_AddedPartition() throws Exception {
+        roomTimelineListener.start();
+        verify(roomTimelineService, timeout(10000)).setLive(true);
+        int partitions;
+        try (AdminClient admin = AdminClient.create(
+                Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString()))) {
+            partitions = admin.describeTopics(List.of(KafkaTopConfig.MESSAGES_TOPIC)).allTopicNames().get()
+                    .get(KafkaTopConfig.MESSAGES_TOPIC).partitions().size() + 1;
+            admin.createPartitions(Map.of(KafkaTopConfig.MESSAGES_TOPIC, NewPartitions.increaseTo(partitions)))
+                    .all().get();
+        }
+        MessageEvent event = event(3L);
+
+        send(event, partitions - 1);
+
+        verify(roomTimelineService, timeout(15000)).apply(event);
+    }
+
+    private void send(MessageEvent event, Integer partition) throws Exception {
+        producer.send(new ProducerRecord<>(KafkaTopConfig.MESSAGES_TOPIC, partition,
+                String.valueOf(event.roomId()), event)).get();
+    }
+
+    private static MessageEvent event(Long id) {
+        return new MessageEvent(MessageEvent.Type.CREATED, id, 1L, 1L, 1000L, "Message " + id);
+    }
+}
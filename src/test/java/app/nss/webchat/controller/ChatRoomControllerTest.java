@@ -1,5 +1,6 @@
 package app.nss.webchat.controller;
 
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.ChatRoom;
 import app.nss.webchat.exception.ApplicationException;
 import app.nss.webchat.service.BlockedUserService;
@@ -25,7 +26,10 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -218,7 +222,7 @@ public class ChatRoomControllerTest {
         // Arrange
         long roomId = 1L;
 
-        doNothing().when(chatRoomService).deleteChatRoom(anyLong());
+        when(chatRoomService.deleteChatRoom(anyLong())).thenReturn(null);
 
         // Act
         ResultActions resultActions = mockMvc.perform(delete("/chat-rooms/{id}", roomId));
@@ -243,5 +247,19 @@ public class ChatRoomControllerTest {
         // Assert
         resultActions.andExpect(status().isForbidden());
     }
-}
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testDeleteChatRoom_Accepted() throws Exception {
+        // Arrange
+        CleanupJobResponse job = new CleanupJobResponse("room-1", "room", 1L, "QUEUED", 0, 0, 0, null, null, null);
+        when(chatRoomService.deleteChatRoom(1L)).thenReturn(job);
+
+        // Act and Assert
+        mockMvc.perform(delete("/chat-rooms/{id}", 1L).with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/cleanup-jobs/room-1"))
+                .andExpect(jsonPath("$.id").value("room-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
+    }
+}
@@ -0,0 +1,77 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.response.CleanupJobResponse;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.service.CleanupService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(CleanupController.class)
+public class CleanupControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CleanupService cleanupService;
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testGetJob() throws Exception {
+        // Arrange
+        LocalDateTime startedAt = LocalDateTime.of(2023, 6, 1, 12, 0);
+        when(cleanupService.getJob("room-1")).thenReturn(new CleanupJobResponse("room-1", "room", 1L, "DONE", 3, 4,
+                0, startedAt, startedAt.plusSeconds(5), null));
+
+        // Act and Assert
+        mockMvc.perform(get("/cleanup-jobs/{id}", "room-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("DONE"))
+                .andExpect(jsonPath("$.participantsDeleted").value(3))
+                .andExpect(jsonPath("$.messagesDeleted").value(4))
+                .andExpect(jsonPath("$.finishedAt").value("2023-06-01 12:00:05"));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testGetJob_NotFound() throws Exception {
+        // Arrange
+        when(cleanupService.getJob("room-9"))
+                .thenThrow(new ApplicationException(HttpStatus.NOT_FOUND, "Cleanup job room-9 not found."));
+
+        // Act and Assert
+        mockMvc.perform(get("/cleanup-jobs/{id}", "room-9"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testGetJobs() throws Exception {
+        // Arrange
+        when(cleanupService.getJobs()).thenReturn(List.of(
+                new CleanupJobResponse("room-1", "room", 1L, "RUNNING", 0, 2, 0, null, null, null),
+                new CleanupJobResponse("user-5", "user", 5L, "FAILED", 0, 0, 1, null, null, "Database is down.")));
+
+        // Act and Assert
+        mockMvc.perform(get("/cleanup-jobs"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].error").value("Database is down."));
+    }
+}
@@ -3,11 +3,19 @@ package app.nss.webchat.controller;
 import app.nss.webchat.config.KafkaConsumerConfig;
 import app.nss.webchat.config.KafkaProducerConfig;
 import app.nss.webchat.config.KafkaTopConfig;
+import app.nss.webchat.config.utils.KafkaPublisher;
+import app.nss.webchat.dto.event.MessageEvent;
 import app.nss.webchat.entity.Message;
 import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.exception.RateLimitException;
+import app.nss.webchat.service.ExportService;
+import app.nss.webchat.service.IdempotencyService;
 import app.nss.webchat.service.MessageService;
+import app.nss.webchat.service.RateLimitService;
+import app.nss.webchat.service.RoomTimelineService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -19,13 +27,24 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
-import static org.mockito.Mockito.doNothing;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -39,6 +58,21 @@ public class MessageControllerTest {
     @MockBean
     private MessageService messageService;
 
+    @MockBean
+    private RoomTimelineService roomTimelineService;
+
+    @MockBean
+    private KafkaPublisher kafkaPublisher;
+
+    @MockBean
+    private ExportService exportService;
+
+    @MockBean
+    private RateLimitService rateLimitService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Test
     @WithMockUser(roles = "USER")
     public void testGetMessageById_ValidRequest() throws Exception {
@@ -108,17 +142,98 @@ public class MessageControllerTest {
                 .andExpect(jsonPath("$.length()").value(messages.size()));
     }
 
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testUpdateMessage_PublishesSavedContent() throws Exception {
+        // Arrange
+        Message saved = new Message();
+        saved.setId(1L);
+        saved.setContent("Edited");
+        when(messageService.updateMessage(1L, 1L, "Edited")).thenReturn(saved);
+
+        // Act
+        mockMvc.perform(put("/message/{id}", 1L)
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\": \"Edited\", \"roomId\": 1, \"senderId\": 1}"))
+                .andExpect(status().isOk());
+
+        // Assert
+        ArgumentCaptor<MessageEvent> event = ArgumentCaptor.forClass(MessageEvent.class);
+        verify(kafkaPublisher).publish(any(), eq(KafkaTopConfig.MESSAGES_TOPIC), any(), event.capture());
+        assertEquals(MessageEvent.Type.UPDATED, event.getValue().type());
+        assertEquals("Edited", event.getValue().content());
+        verify(messageService, never()).getMessageById(any());
+    }
+
     @Test
     @WithMockUser(roles = "USER")
     public void testDeleteMessage_ForbiddenRequest() throws Exception {
         // Arrange
         Long messageId = 1L;
-        doNothing().when(messageService).deleteMessage(messageId);
+        when(messageService.deleteMessage(messageId)).thenReturn(new Message());
 
         // Act and Assert
         mockMvc.perform(delete("/message/{id}", messageId)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isForbidden());
     }
-}
 
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testSendMessage_RateLimited() throws Exception {
+        // Arrange
+        doThrow(new RateLimitException("Too many messages, please slow down.", Duration.ofMillis(1500)))
+                .when(rateLimitService).acquireMessage(any(), eq(1L));
+
+        // Act and Assert
+        mockMvc.perform(post("/message")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\": \"Hello\", \"roomId\": 1, \"senderId\": 1}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+        verify(messageService, never()).containsUserInRoom(any(), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testSendMessage_IdempotentReplay() throws Exception {
+        // Arrange
+        Message message = new Message();
+        message.setId(7L);
+        message.setContent("Hello");
+        when(messageService.containsUserInRoom(1L, 1L)).thenReturn(true);
+        when(idempotencyService.sendOnce(eq(1L), eq("retry-1"), any(), any()))
+                .thenReturn(new IdempotencyService.Result(message, true));
+
+        // Act and Assert
+        mockMvc.perform(post("/message")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\": \"Hello\", \"roomId\": 1, \"senderId\": 1, "
+                                + "\"idempotency_key\": \"retry-1\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(MessageController.IDEMPOTENT_REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(7L));
+        verify(kafkaPublisher, never()).publish(any(), any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    public void testSendMessage_PublisherOverloaded() throws Exception {
+        // Arrange
+        when(messageService.containsUserInRoom(1L, 1L)).thenReturn(true);
+        when(kafkaPublisher.reserve()).thenThrow(new ApplicationException(
+                HttpStatus.SERVICE_UNAVAILABLE, "Message delivery is overloaded, please try again later."));
+
+        // Act and Assert
+        mockMvc.perform(post("/message")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"content\": \"Hello\", \"roomId\": 1, \"senderId\": 1}"))
+                .andExpect(status().isServiceUnavailable());
+        verifyNoInteractions(idempotencyService);
+        verify(messageService, never()).sendMessage(any(), any(), any());
+    }
+}
@@ -2,6 +2,7 @@ package app.nss.webchat.controller;
 
 import app.nss.webchat.entity.Notification;
 import app.nss.webchat.entity.User;
+import app.nss.webchat.service.ExportService;
 import app.nss.webchat.service.NotificationService;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,13 +16,21 @@ import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -36,6 +45,9 @@ public class NotificationControllerTest {
     @MockBean
     private NotificationService notificationService;
 
+    @MockBean
+    private ExportService exportService;
+
     @Test
     public void testGetAllNotifications_ValidRequest() throws Exception {
         // Arrange
@@ -66,6 +78,25 @@ public class NotificationControllerTest {
                 .andExpect(jsonPath("$[1].content").value(notification2.getContent()));
     }
 
+    @Test
+    public void testExportNotifications_ValidRequest() throws Exception {
+        // Arrange
+        when(exportService.exportNotifications(any(OutputStream.class), eq(false))).thenAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        });
+
+        // Act and Assert
+        MvcResult result = mockMvc.perform(get("/notifications/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"notifications.ndjson\""))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
     @Test
     public void testGetNotificationById_ValidRequest() throws Exception {
         // Arrange
@@ -0,0 +1,73 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.dto.response.ReadWatermarkResponse;
+import app.nss.webchat.service.ReadReceiptService;
+import app.nss.webchat.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(ReadReceiptController.class)
+public class ReadReceiptControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReadReceiptService readReceiptService;
+
+    @MockBean
+    private UserService userService;
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testMarkRead() throws Exception {
+        when(userService.getUserIdByUsername("alice")).thenReturn(10L);
+
+        mockMvc.perform(put("/chat-rooms/{id}/read-watermarks", 1L)
+                        .param("messageId", "5")
+                        .with(csrf()))
+                .andExpect(status().isOk());
+
+        verify(readReceiptService).markRead(1L, 10L, 5L);
+    }
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testGetReadWatermarks_ReadersOfMessage() throws Exception {
+        when(readReceiptService.getReaders(1L, 5L)).thenReturn(List.of(new ReadWatermarkResponse(1L, 10L, 7L)));
+
+        mockMvc.perform(get("/chat-rooms/{id}/read-watermarks", 1L).param("messageId", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].userId").value(10))
+                .andExpect(jsonPath("$[0].lastReadMessageId").value(7));
+    }
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testMarkRead_InvalidMessage() throws Exception {
+        mockMvc.perform(put("/chat-rooms/{id}/read-watermarks", 1L)
+                        .param("messageId", "0")
+                        .with(csrf()))
+                .andExpect(status().isNotFound());
+
+        verifyNoInteractions(readReceiptService);
+    }
+}
@@ -0,0 +1,107 @@
+package app.nss.webchat.controller;
+
+import app.nss.webchat.service.ChatRoomService;
+import app.nss.webchat.service.TypingService;
+import app.nss.webchat.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@WebMvcTest(TypingController.class)
+@Import({TypingService.class, TypingControllerTest.MetricsConfig.class})
+public class TypingControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChatRoomService chatRoomService;
+
+    @MockBean
+    private UserService userService;
+
+    @BeforeEach
+    public void setUp() {
+        when(userService.getUserIdByUsername("alice")).thenReturn(10L);
+        when(chatRoomService.isParticipant(1L, 10L)).thenReturn(true);
+    }
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testSignalTyping_StreamedToSubscribers() throws Exception {
+        // Arrange
+        MvcResult stream = mockMvc.perform(get("/chat-rooms/{id}/typing/stream", 1L)
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Act
+        mockMvc.perform(post("/chat-rooms/{id}/typing", 1L).with(csrf()))
+                .andExpect(status().isOk());
+
+        // Assert
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!stream.getResponse().getContentAsString().contains("alice") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        String events = stream.getResponse().getContentAsString();
+        assertTrue(events.contains("event:typing"), events);
+        assertTrue(events.contains("\"activity\":\"TYPING\""), events);
+        assertTrue(events.contains("\"username\":\"alice\""), events);
+        mockMvc.perform(get("/chat-rooms/{id}/typing", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].username").value("alice"));
+    }
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testSignalTyping_InvalidRoom() throws Exception {
+        mockMvc.perform(post("/chat-rooms/{id}/typing", 0L).with(csrf()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "alice", roles = "USER")
+    public void testSignalTyping_NotParticipant() throws Exception {
+        mockMvc.perform(post("/chat-rooms/{id}/typing", 2L).with(csrf()))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/chat-rooms/{id}/typing/stream", 2L).accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isNotFound());
+
+        verify(chatRoomService, times(2)).isParticipant(2L, 10L);
+    }
+}
@@ -1,5 +1,6 @@
 package app.nss.webchat.controller;
 
+import app.nss.webchat.dto.response.CleanupJobResponse;
 import app.nss.webchat.entity.User;
 import app.nss.webchat.entity.UserStatus;
 import app.nss.webchat.service.UserService;
@@ -19,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -214,5 +216,19 @@ public class UserControllerTest {
         mockMvc.perform(delete("/users/{id}", userId))
                 .andExpect(status().isForbidden());
     }
-}
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    public void testDeleteUserById_Accepted() throws Exception {
+        // Arrange
+        CleanupJobResponse job = new CleanupJobResponse("user-1", "user", 1L, "QUEUED", 0, 0, 0, null, null, null);
+        when(userService.deleteUserById(1L)).thenReturn(job);
+
+        // Act and Assert
+        mockMvc.perform(delete("/users/{id}", 1L).with(csrf()))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/cleanup-jobs/user-1"))
+                .andExpect(jsonPath("$.id").value("user-1"))
+                .andExpect(jsonPath("$.target").value("user"));
+    }
+}
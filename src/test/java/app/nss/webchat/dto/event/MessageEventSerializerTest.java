@@ -0,0 +1,48 @@
+package app.nss.webchat.dto.event;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageEventSerializerTest {
+
+    private final MessageEventSerializer serializer = new MessageEventSerializer();
+    private final MessageEventDeserializer deserializer = new MessageEventDeserializer();
+
+    // Test serialize and deserialize methods - every field survives the round trip
+    @Test
+    public void testRoundTrip() {
+        MessageEvent event = new MessageEvent(
+                MessageEvent.Type.UPDATED, 123456789L, 42L, 0L, 1_700_000_000_000L, "Ahoj, jak se máš? 👋");
+
+        byte[] bytes = serializer.serialize("messages", event);
+
+        assertEquals(event, deserializer.deserialize("messages", bytes));
+        assertTrue(bytes.length < 50);
+    }
+
+    // Test serialize and deserialize methods - delete events carry no content
+    @Test
+    public void testRoundTrip_Delete() {
+        MessageEvent event = new MessageEvent(MessageEvent.Type.DELETED, 7L, 3L, null, 0L, null);
+
+        assertEquals(event, deserializer.deserialize("messages", serializer.serialize("messages", event)));
+        assertNull(deserializer.deserialize("messages", null));
+    }
+
+    // Test deserialize method - unknown version and truncated payload
+    @Test
+    public void testDeserialize_Invalid() {
+        byte[] bytes = serializer.serialize("messages",
+                new MessageEvent(MessageEvent.Type.CREATED, 1L, 1L, 1L, 1L, "Hello there"));
+        byte[] otherVersion = bytes.clone();
+        otherVersion[0] = 2;
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("messages", otherVersion));
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("messages", Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+}
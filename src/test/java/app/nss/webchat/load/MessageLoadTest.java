@@ -0,0 +1,301 @@
+package app.nss.webchat.load;
+
+import app.nss.webchat.entity.ChatRoom;
+import app.nss.webchat.entity.Notification;
+import app.nss.webchat.entity.NotificationStatus;
+import app.nss.webchat.entity.User;
+import app.nss.webchat.repository.ChatRoomRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import app.nss.webchat.repository.UserRepository;
+import app.nss.webchat.service.TokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives a mix of message sends, room-history reads and notification reads against the full application,
+ * backed by embedded Kafka and an in-memory H2 database (or any JDBC database given with -Dload.datasource.url).
+ * Run with {@code mvn -P load-test test}; the report is printed and written to target/load-test-report.json.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(partitions = 6, topics = "messages", bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+public class MessageLoadTest {
+
+    private static final String H2_URL =
+            "jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final int users = Integer.getInteger("load.users", 50);
+    private final int rooms = Integer.getInteger("load.rooms", 10);
+    private final int clients = Integer.getInteger("load.clients", 64);
+    private final Duration warmup = Duration.parse(System.getProperty("load.warmup", "PT5S"));
+    private final Duration duration = Duration.parse(System.getProperty("load.duration", "PT30S"));
+    private final String mix = System.getProperty("load.mix", "send=60,history=30,notifications=10");
+    private final double maxErrorRate = Double.parseDouble(System.getProperty("load.max-error-rate", "0.01"));
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile boolean measuring;
+
+    @DynamicPropertySource
+    static void loadTestProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("load.datasource.url", H2_URL));
+        registry.add("spring.datasource.username", () -> System.getProperty("load.datasource.username", "sa"));
+        registry.add("spring.datasource.password", () -> System.getProperty("load.datasource.password", ""));
+        registry.add("spring.datasource.driver-class-name",
+                () -> System.getProperty("load.datasource.driver", "org.h2.Driver"));
+        // Postgres gets the schema from the migrations, H2 from the entities
+        boolean h2 = System.getProperty("load.datasource.url", H2_URL).startsWith("jdbc:h2:");
+        registry.add("spring.flyway.enabled", () -> !h2);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> h2 ? "create-drop" : "validate");
+        registry.add("app.access-log.sample-rate", () -> "0.01");
+        registry.add("app.security.token.secret", () -> "load-test-secret-which-is-long-enough-for-hmac");
+        // Measures the send path itself, not the per-user limits
+        registry.add("app.rate-limit.enabled", () -> System.getProperty("load.rate-limit", "false"));
+    }
+
+    @Test
+    public void messageSendAndReadMix() throws Exception {
+        List<Client> seeded = seed();
+        Map<Operation, Integer> weights = parseMix(mix);
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+
+        try (ExecutorService httpThreads = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(httpThreads)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            long deadline = System.nanoTime() + warmup.toNanos() + duration.toNanos();
+            for (int i = 0; i < clients; i++) {
+                Client client = seeded.get(i % seeded.size());
+                clientThreads.submit(() -> runClient(httpClient, client, weights, stats, deadline));
+            }
+
+            Thread.sleep(warmup.toMillis());
+            stats.values().forEach(Stats::reset);
+            measuring = true;
+            long measureStart = System.nanoTime();
+            clientThreads.shutdown();
+            clientThreads.awaitTermination(duration.toSeconds() + 60, TimeUnit.SECONDS);
+            measuring = false;
+
+            double seconds = (System.nanoTime() - measureStart) / 1e9;
+            Map<String, Object> report = report(stats, seconds);
+            System.out.println(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report));
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File("target/load-test-report.json"), report);
+        }
+
+        long total = stats.values().stream().mapToLong(s -> s.histogram.getTotalCount()).sum();
+        long errors = stats.values().stream().mapToLong(s -> s.errors.get()).sum();
+        assertTrue(total > 0, "No requests completed during the measurement window.");
+        assertTrue(errors <= total * maxErrorRate, "Error rate above " + maxErrorRate + ": " + errors + "/" + total);
+    }
+
+    private void runClient(HttpClient httpClient, Client client, Map<Operation, Integer> weights,
+                           Map<Operation, Stats> stats, long deadline) {
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        while (System.nanoTime() < deadline) {
+            Operation operation = pick(weights, totalWeight);
+            HttpRequest request = request(operation, client);
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= 400;
+            } catch (Exception e) {
+                failed = true;
+            }
+            long micros = (System.nanoTime() - start) / 1_000;
+            if (measuring) {
+                Stats operationStats = stats.get(operation);
+                operationStats.histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                if (failed) {
+                    operationStats.errors.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private HttpRequest request(Operation operation, Client client) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + client.token())
+                .header("Content-Type", "application/json");
+        return switch (operation) {
+            case SEND -> builder.uri(uri("/message"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"roomId\":" + client.roomId() +
+                            ",\"senderId\":" + client.userId() +
+                            ",\"content\":\"load test message " + ThreadLocalRandom.current().nextInt() + "\"}"))
+                    .build();
+            case HISTORY -> builder.uri(uri("/message/filter/" + client.roomId() + "?type=chat")).GET().build();
+            case NOTIFICATIONS -> builder.uri(uri("/notifications/pagination?limit=20&offset=0")).GET().build();
+        };
+    }
+
+    private List<Client> seed() {
+        String encodedPassword = passwordEncoder.encode("load-test-password"); // Hash once, reuse for every user
+        List<ChatRoom> seededRooms = new ArrayList<>();
+        for (int r = 0; r < rooms; r++) {
+            ChatRoom room = new ChatRoom();
+            room.setName("load-" + r);
+            room.setDescription("Load test room " + r);
+            room.setParticipants(new ArrayList<>());
+            seededRooms.add(room);
+        }
+        List<User> seededUsers = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            User user = new User();
+            user.setUsername("load-user-" + u);
+            user.setEmail("load-user-" + u + "@example.com");
+            user.setPassword(encodedPassword);
+            seededUsers.add(user);
+        }
+        seededUsers = userRepository.saveAll(seededUsers);
+        for (int u = 0; u < seededUsers.size(); u++) {
+            seededRooms.get(u % rooms).getParticipants().add(seededUsers.get(u));
+        }
+        seededRooms = chatRoomRepository.saveAll(seededRooms);
+
+        List<Notification> notifications = new ArrayList<>();
+        List<Client> seededClients = new ArrayList<>();
+        for (int u = 0; u < seededUsers.size(); u++) {
+            User user = seededUsers.get(u);
+            Notification notification = new Notification();
+            notification.setContent("Welcome to the load test");
+            notification.setRecipient(user);
+            notification.setStatus(NotificationStatus.UNREAD);
+            notification.setTimeStamp(LocalDateTime.now());
+            notifications.add(notification);
+            seededClients.add(new Client(user.getId(), seededRooms.get(u % rooms).getId(), tokenService.issueToken(user)));
+        }
+        notificationRepository.saveAll(notifications);
+        return seededClients;
+    }
+
+    private Map<String, Object> report(Map<Operation, Stats> stats, double seconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", users);
+        report.put("rooms", rooms);
+        report.put("clients", clients);
+        report.put("duration_seconds", seconds);
+        Histogram all = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long allErrors = 0;
+        for (Map.Entry<Operation, Stats> entry : stats.entrySet()) {
+            Histogram histogram = entry.getValue().histogram.copy();
+            long errors = entry.getValue().errors.get();
+            all.add(histogram);
+            allErrors += errors;
+            report.put(entry.getKey().name().toLowerCase(), summary(histogram, errors, seconds));
+        }
+        report.put("total", summary(all, allErrors, seconds));
+        return report;
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errors, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("errors", errors);
+        summary.put("throughput_per_second", histogram.getTotalCount() / seconds);
+        summary.put("p50_ms", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90_ms", histogram.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99_ms", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999_ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("max_ms", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    private static Operation pick(Map<Operation, Integer> weights, int totalWeight) {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.SEND;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private enum Operation {
+        SEND, HISTORY, NOTIFICATIONS
+    }
+
+    private record Client(Long userId, Long roomId, String token) {
+    }
+
+    private static final class Stats {
+        private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        private void reset() {
+            histogram.reset();
+            errors.set(0);
+        }
+    }
+}
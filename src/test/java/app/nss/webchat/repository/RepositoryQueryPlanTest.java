@@ -0,0 +1,209 @@
+package app.nss.webchat.repository;
+
+import app.nss.webchat.config.FlywayLockCustomizer;
+import app.nss.webchat.entity.ChatRoom;
+import app.nss.webchat.entity.NotificationStatus;
+import app.nss.webchat.entity.User;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every declared repository query against Postgres with the schema from db/migration and fails when the
+// plan of one of its statements reads a whole table. Sequential scans are disabled, so the planner only falls
+// back to them when no index can serve the query, and plans are generic, so they hold for any parameter values.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(FlywayLockCustomizer.class)
+public class RepositoryQueryPlanTest {
+
+    private static final List<Class<?>> REPOSITORIES = List.of(
+            ChatRoomRepository.class, MessageRepository.class, NotificationRepository.class, UserRepository.class,
+            ReadWatermarkRepository.class);
+    // Exports and id listings read every row on purpose
+    private static final Set<String> FULL_READS = Set.of(
+            "MessageRepository.streamAllForExport",
+            "NotificationRepository.streamAllForExport",
+            "ChatRoomRepository.findAllIds");
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ChatRoomRepository chatRoomRepository;
+    @Autowired
+    private MessageRepository messageRepository;
+    @Autowired
+    private NotificationRepository notificationRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ReadWatermarkRepository readWatermarkRepository;
+
+    @TestConfiguration
+    static class PostgresConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres embeddedPostgres) {
+            return embeddedPostgres.getPostgresDatabase();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer statementRecorder() {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+                STATEMENTS.add(sql);
+                return sql;
+            });
+        }
+    }
+
+    // Test repository queries - each one has an index for its filters and joins
+    @Test
+    public void testRepositoryQueries_UseIndexes() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@chat.cz");
+        user.setPassword("password");
+        entityManager.persist(user);
+        ChatRoom room = new ChatRoom();
+        room.setName("room");
+        room.setDescription("First room");
+        entityManager.persist(room);
+        entityManager.flush();
+        Long userId = user.getId();
+        Long roomId = room.getId();
+
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("ChatRoomRepository.findByName", () -> chatRoomRepository.findByName("room"));
+        queries.put("ChatRoomRepository.findAllByParticipantsUsername",
+                () -> chatRoomRepository.findAllByParticipantsUsername("alice"));
+        queries.put("ChatRoomRepository.findBySpecificParticipant",
+                () -> chatRoomRepository.findBySpecificParticipant("alice"));
+        queries.put("ChatRoomRepository.findBySpecificMessage",
+                () -> chatRoomRepository.findBySpecificMessage("Hello everyone"));
+        queries.put("ChatRoomRepository.containsUserInRoom", () -> chatRoomRepository.containsUserInRoom(roomId, userId));
+        queries.put("ChatRoomRepository.findAllIds", () -> chatRoomRepository.findAllIds());
+        queries.put("ChatRoomRepository.insertParticipant", () -> chatRoomRepository.insertParticipant(roomId, userId));
+        queries.put("ChatRoomRepository.deleteParticipant", () -> chatRoomRepository.deleteParticipant(roomId, userId));
+        queries.put("ChatRoomRepository.deleteParticipantsChunk",
+                () -> chatRoomRepository.deleteParticipantsChunk(roomId, 100));
+        queries.put("ChatRoomRepository.deleteMemberships", () -> chatRoomRepository.deleteMemberships(userId));
+        queries.put("MessageRepository.findAllBySenderIdOrderByTimeStampAsc",
+                () -> messageRepository.findAllBySenderIdOrderByTimeStampAsc(userId));
+        queries.put("MessageRepository.findAllBySenderIdOrderByTimeStampDesc",
+                () -> messageRepository.findAllBySenderIdOrderByTimeStampDesc(userId));
+        queries.put("MessageRepository.findTimelineForChat", () -> messageRepository.findTimelineForChat(roomId));
+        queries.put("MessageRepository.findAllMessagesByKeyword", () -> messageRepository.findAllMessagesByKeyword("hello"));
+        queries.put("MessageRepository.existsMessageByIdAndSenderId",
+                () -> messageRepository.existsMessageByIdAndSenderId(1L, userId));
+        queries.put("MessageRepository.existsMessageByIdAndRoomId",
+                () -> messageRepository.existsMessageByIdAndRoomId(1L, roomId));
+        queries.put("MessageRepository.streamAllForExport", () -> consume(messageRepository.streamAllForExport()));
+        queries.put("MessageRepository.deleteChunkByRoom", () -> messageRepository.deleteChunkByRoom(roomId, 100));
+        queries.put("MessageRepository.deleteChunkBySender", () -> messageRepository.deleteChunkBySender(userId, 100));
+        queries.put("NotificationRepository.findByRecipientIdAndStatus",
+                () -> notificationRepository.findByRecipientIdAndStatus(userId, NotificationStatus.UNREAD));
+        queries.put("NotificationRepository.updateStatus",
+                () -> notificationRepository.updateStatus(NotificationStatus.READ, NotificationStatus.UNREAD, userId));
+        queries.put("NotificationRepository.streamAllForExport",
+                () -> consume(notificationRepository.streamAllForExport()));
+        queries.put("NotificationRepository.deleteChunkByRecipient",
+                () -> notificationRepository.deleteChunkByRecipient(userId, 100));
+        queries.put("UserRepository.findByUsername", () -> userRepository.findByUsername("alice"));
+        queries.put("UserRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase",
+                () -> userRepository.findByUsernameContainingIgnoreCaseOrEmailContainingIgnoreCase("ali", "ali"));
+        queries.put("UserRepository.existsByUsername", () -> userRepository.existsByUsername("alice"));
+        queries.put("UserRepository.existsByEmail", () -> userRepository.existsByEmail("alice@chat.cz"));
+        queries.put("ReadWatermarkRepository.findAllByRoomId", () -> readWatermarkRepository.findAllByRoomId(roomId));
+        queries.put("ReadWatermarkRepository.upsert",
+                () -> readWatermarkRepository.upsert(userId, roomId, 1L, LocalDateTime.now()));
+
+        assertEquals(declaredQueries(), new TreeSet<>(queries.keySet()),
+                "Every repository query needs an entry here, so its plan is checked.");
+
+        List<String> sequentialScans = new ArrayList<>();
+        queries.forEach((name, query) -> {
+            STATEMENTS.clear();
+            query.run();
+            assertFalse(STATEMENTS.isEmpty(), name + " did not run a statement.");
+            for (String sql : STATEMENTS) {
+                List<String> plan = explain(sql);
+                if (!FULL_READS.contains(name) && plan.stream().anyMatch(line -> line.contains("Seq Scan"))) {
+                    sequentialScans.add(name + "\n  " + sql + "\n  " + String.join("\n  ", plan));
+                }
+            }
+        });
+        assertTrue(sequentialScans.isEmpty(), "Queries without an index:\n" + String.join("\n", sequentialScans));
+    }
+
+    private List<String> explain(String sql) {
+        StringBuilder statement = new StringBuilder();
+        int parameters = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                statement.append('$').append(++parameters);
+            } else {
+                statement.append(c);
+            }
+        }
+        jdbcTemplate.execute("SET enable_seqscan = off");
+        jdbcTemplate.execute("SET plan_cache_mode = force_generic_plan");
+        jdbcTemplate.execute("PREPARE plan_probe AS " + statement);
+        try {
+            String arguments = parameters == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameters, "NULL")) + ")";
+            return jdbcTemplate.queryForList("EXPLAIN EXECUTE plan_probe" + arguments, String.class);
+        } finally {
+            jdbcTemplate.execute("DEALLOCATE plan_probe");
+        }
+    }
+
+    private static Set<String> declaredQueries() {
+        Set<String> names = new TreeSet<>();
+        for (Class<?> repository : REPOSITORIES) {
+            Arrays.stream(repository.getDeclaredMethods())
+                    .filter(method -> !method.isSynthetic() && !method.isDefault())
+                    .map(Method::getName)
+                    .forEach(name -> names.add(repository.getSimpleName() + "." + name));
+        }
+        return names;
+    }
+
+    private static void consume(Stream<?> stream) {
+        try (stream) {
+            stream.count();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package app.nss.webchat.repository;
+
+import app.nss.webchat.config.FlywayLockCustomizer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Migrations on a database that was created before them, with the schema of V1 and rows it allowed
+public class SchemaMigrationTest {
+
+    // Test migrate method - memberships added twice are merged and can no longer be added again
+    @Test
+    public void testMigrate_DuplicateParticipants() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            DataSource dataSource = postgres.getPostgresDatabase();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            migrate(dataSource, MigrationVersion.fromVersion("1"));
+            jdbcTemplate.update("INSERT INTO users (id, username, email, password, role, user_status) "
+                    + "VALUES (1, 'alice', 'a@chat.cz', 'x', 'USER', 'OFFLINE')");
+            jdbcTemplate.update("INSERT INTO chat_room (id, name, description) VALUES (1, 'room', 'First room')");
+            jdbcTemplate.update("INSERT INTO participants (chat_room_id, user_id) VALUES (1, 1), (1, 1), (1, 1)");
+
+            migrate(dataSource, MigrationVersion.LATEST);
+
+            assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM participants", Integer.class));
+            assertEquals(0, jdbcTemplate.update("INSERT INTO participants (chat_room_id, user_id) VALUES (1, 1) "
+                    + "ON CONFLICT (chat_room_id, user_id) DO NOTHING"));
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM import_checkpoint", Integer.class));
+        }
+    }
+
+    private static void migrate(DataSource dataSource, MigrationVersion target) {
+        Flyway.configure().dataSource(dataSource).target(target)
+                .configuration(Map.of(FlywayLockCustomizer.TRANSACTIONAL_LOCK, "false")).load().migrate();
+    }
+}
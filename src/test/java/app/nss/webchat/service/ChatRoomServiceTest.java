@@ -21,12 +21,14 @@ public class ChatRoomServiceTest {
     private ChatRoomService chatRoomService;
     private ChatRoomRepository chatRoomRepository;
     private UserRepository userRepository;
+    private CleanupService cleanupService;
 
     @Before
     public void setUp() {
         chatRoomRepository = mock(ChatRoomRepository.class);
         userRepository = mock(UserRepository.class);
-        chatRoomService = new ChatRoomService(chatRoomRepository, userRepository);
+        cleanupService = mock(CleanupService.class);
+        chatRoomService = new ChatRoomService(chatRoomRepository, userRepository, cleanupService);
     }
 
     @Test
@@ -220,7 +222,7 @@ public class ChatRoomServiceTest {
         long roomId = 1L;
         Long userId = 1L;
 
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.empty());
+        when(chatRoomRepository.existsById(roomId)).thenReturn(false);
 
         // Act
         chatRoomService.addParticipant(roomId, userId);
@@ -234,8 +236,8 @@ public class ChatRoomServiceTest {
         long roomId = 1L;
         Long userId = 1L;
 
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.of(new ChatRoom()));
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(chatRoomRepository.existsById(roomId)).thenReturn(true);
+        when(userRepository.existsById(userId)).thenReturn(false);
 
         // Act
         chatRoomService.addParticipant(roomId, userId);
@@ -243,6 +245,22 @@ public class ChatRoomServiceTest {
         // The test should throw an ApplicationException with HttpStatus.NOT_FOUND
     }
 
+    @Test(expected = ApplicationException.class)
+    public void testAddParticipant_AlreadyInRoom() {
+        // Arrange
+        long roomId = 1L;
+        Long userId = 1L;
+
+        when(chatRoomRepository.existsById(roomId)).thenReturn(true);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(chatRoomRepository.insertParticipant(roomId, userId)).thenReturn(0);
+
+        // Act
+        chatRoomService.addParticipant(roomId, userId);
+
+        // The test should throw an ApplicationException with HttpStatus.BAD_REQUEST
+    }
+
     @Test
     public void testUpdateChatRoom_ValidData() {
         // Arrange
@@ -353,24 +371,20 @@ public class ChatRoomServiceTest {
         // Arrange
         Long roomId = 1L;
 
-        ChatRoom existingChatRoom = new ChatRoom();
-        existingChatRoom.setId(roomId);
-        existingChatRoom.setName("Room 1");
-
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.of(existingChatRoom));
+        when(chatRoomRepository.existsById(roomId)).thenReturn(true);
 
         // Act
         chatRoomService.deleteChatRoom(roomId);
 
         // Assert
-        verify(chatRoomRepository, times(1)).delete(existingChatRoom);
+        verify(cleanupService, times(1)).deleteRoom(roomId);
     }
 
     @Test(expected = ApplicationException.class)
     public void testDeleteChatRoom_InvalidId() {
         // Arrange
         Long roomId = 1L;
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.empty());
+        when(chatRoomRepository.existsById(roomId)).thenReturn(false);
 
         // Act
         chatRoomService.deleteChatRoom(roomId);
@@ -384,7 +398,7 @@ public class ChatRoomServiceTest {
         long roomId = 1L;
         long userId = 1L;
 
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.empty());
+        when(chatRoomRepository.existsById(roomId)).thenReturn(false);
 
         // Act
         chatRoomService.deleteParticipant(roomId, userId);
@@ -396,11 +410,29 @@ public class ChatRoomServiceTest {
         long roomId = 1L;
         long userId = 1L;
 
-        when(chatRoomRepository.findById(roomId)).thenReturn(Optional.of(new ChatRoom()));
-        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+        when(chatRoomRepository.existsById(roomId)).thenReturn(true);
+        when(userRepository.existsById(userId)).thenReturn(false);
+
+        // Act
+        chatRoomService.deleteParticipant(roomId, userId);
+    }
+
+    @Test
+    public void testDeleteParticipant_ValidParticipant() {
+        // Arrange
+        long roomId = 1L;
+        long userId = 1L;
+
+        when(chatRoomRepository.existsById(roomId)).thenReturn(true);
+        when(userRepository.existsById(userId)).thenReturn(true);
+        when(chatRoomRepository.deleteParticipant(roomId, userId)).thenReturn(1);
 
         // Act
         chatRoomService.deleteParticipant(roomId, userId);
+
+        // Assert
+        verify(chatRoomRepository).deleteParticipant(roomId, userId);
+        verify(chatRoomRepository, never()).save(any());
     }
 }
 
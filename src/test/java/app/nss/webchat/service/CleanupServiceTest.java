@@ -0,0 +1,138 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.CleanupJobResponse;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ChatRoomRepository;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import app.nss.webchat.repository.UserRepository;
+import com.hazelcast.map.IMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CleanupServiceTest {
+
+    private final ChatRoomRepository chatRoomRepository = mock(ChatRoomRepository.class);
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final RoomTimelineService roomTimelineService = mock(RoomTimelineService.class);
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("chatRoomsCache");
+    @SuppressWarnings("unchecked")
+    private final IMap<String, CleanupJobResponse> clusterJobs = mock(IMap.class);
+    private final List<Runnable> queued = new ArrayList<>();
+    private CleanupService cleanupService;
+
+    @BeforeEach
+    public void setup() {
+        cleanupService = new CleanupService(chatRoomRepository, messageRepository, notificationRepository,
+                userRepository, roomTimelineService, cacheManager, mock(PlatformTransactionManager.class),
+                queued::add, 2, Duration.ofHours(1), clusterJobs);
+    }
+
+    // Test deleteRoom method - participants and messages go in chunks until a chunk comes back short
+    @Test
+    public void testDeleteRoom() {
+        cacheManager.getCache("chatRoomsCache").put("key", "value");
+        when(chatRoomRepository.deleteParticipantsChunk(1L, 2)).thenReturn(2, 1, 0);
+        when(messageRepository.deleteChunkByRoom(1L, 2)).thenReturn(2, 2, 0, 0);
+
+        CleanupJobResponse queuedJob = cleanupService.deleteRoom(1L);
+        assertEquals("room-1", queuedJob.id());
+        assertEquals("QUEUED", queuedJob.state());
+        queued.forEach(Runnable::run);
+
+        CleanupJobResponse job = cleanupService.getJob("room-1");
+        assertEquals("DONE", job.state());
+        assertEquals(3, job.participantsDeleted());
+        assertEquals(4, job.messagesDeleted());
+        assertNotNull(job.finishedAt());
+        verify(messageRepository, times(4)).deleteChunkByRoom(1L, 2);
+        verify(chatRoomRepository).deleteById(1L);
+        verify(roomTimelineService).invalidateCluster(1L);
+        assertNull(cacheManager.getCache("chatRoomsCache").get("key"));
+    }
+
+    // Test deleteUser method - a failed job keeps its progress and can be started again
+    @Test
+    public void testDeleteUser_Failed() {
+        when(notificationRepository.deleteChunkByRecipient(5L, 2)).thenReturn(1);
+        when(messageRepository.deleteChunkBySender(5L, 2)).thenThrow(new IllegalStateException("Database is down."));
+
+        cleanupService.deleteUser(5L);
+        queued.forEach(Runnable::run);
+
+        CleanupJobResponse job = cleanupService.getJob("user-5");
+        assertEquals("FAILED", job.state());
+        assertEquals(1, job.notificationsDeleted());
+        assertEquals("Database is down.", job.error());
+        verify(userRepository, never()).deleteById(any());
+
+        assertEquals("QUEUED", cleanupService.deleteUser(5L).state());
+        assertEquals(2, queued.size());
+    }
+
+    // Test deleteRoom method - asking again while a job is active returns that job
+    @Test
+    public void testDeleteRoom_AlreadyQueued() {
+        cleanupService.deleteRoom(1L);
+        cleanupService.deleteRoom(1L);
+
+        assertEquals(1, queued.size());
+        assertEquals(1, cleanupService.getJobs().size());
+    }
+
+    // Test deleteNotifications method - runs in the calling thread and returns the number of rows
+    @Test
+    public void testDeleteNotifications() {
+        when(notificationRepository.deleteChunkByRecipient(5L, 2)).thenReturn(2, 2, 1);
+
+        assertEquals(5, cleanupService.deleteNotifications(5L));
+        assertTrue(queued.isEmpty());
+    }
+
+    // Test getJob method - unknown job
+    @Test
+    public void testGetJob_NotFound() {
+        assertThrows(ApplicationException.class, () -> cleanupService.getJob("room-9"));
+    }
+
+    // Test deleteRoom method - the progress is shared with the other nodes after every chunk
+    @Test
+    public void testDeleteRoom_Shared() {
+        when(messageRepository.deleteChunkByRoom(1L, 2)).thenReturn(2, 1, 0);
+
+        cleanupService.deleteRoom(1L);
+        queued.forEach(Runnable::run);
+
+        // Queued, running, one per chunk of participants and messages, done
+        verify(clusterJobs, times(8)).set(eq("room-1"), any(CleanupJobResponse.class), eq(3_600_000L),
+                eq(TimeUnit.MILLISECONDS));
+        verify(clusterJobs).set(eq("room-1"), argThat(job -> job.state().equals("DONE")
+                && job.messagesDeleted() == 3), anyLong(), any());
+    }
+
+    // Test getJob method - jobs of other nodes are answered from the cluster copy
+    @Test
+    public void testGetJob_OtherNode() {
+        CleanupJobResponse remote = new CleanupJobResponse("user-7", "user", 7L, "RUNNING", 0, 10, 2, null, null,
+                null);
+        when(clusterJobs.get("user-7")).thenReturn(remote);
+        when(clusterJobs.values()).thenReturn(List.of(remote));
+        cleanupService.deleteRoom(1L);
+
+        assertEquals(remote, cleanupService.getJob("user-7"));
+        assertEquals(List.of("room-1", "user-7"),
+                cleanupService.getJobs().stream().map(CleanupJobResponse::id).toList());
+    }
+}
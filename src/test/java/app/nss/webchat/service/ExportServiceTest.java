@@ -0,0 +1,71 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.MessageExportResponse;
+import app.nss.webchat.dto.response.NotificationExportResponse;
+import app.nss.webchat.entity.NotificationStatus;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.NotificationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ExportServiceTest {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final ExportService exportService = new ExportService(messageRepository, notificationRepository,
+            new ObjectMapper().registerModule(new JavaTimeModule()));
+
+    // Test exportMessages method - one JSON object per line, and the stream is closed afterwards
+    @Test
+    public void testExportMessages() throws IOException {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(messageRepository.streamAllForExport()).thenReturn(Stream.of(
+                new MessageExportResponse(1L, "Hello everyone", LocalDateTime.of(2023, 6, 1, 12, 0), 7L, 3L),
+                new MessageExportResponse(2L, "Second message", LocalDateTime.of(2023, 6, 1, 12, 5), 8L, 3L)
+        ).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportMessages(out, false);
+
+        assertEquals(2, count);
+        assertEquals("""
+                {"id":1,"content":"Hello everyone","timeStamp":"2023-06-01 12:00","senderId":7,"roomId":3}
+                {"id":2,"content":"Second message","timeStamp":"2023-06-01 12:05","senderId":8,"roomId":3}
+                """, out.toString(StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+    }
+
+    // Test exportNotifications method - gzip output holds the same lines
+    @Test
+    public void testExportNotifications_Gzip() throws IOException {
+        when(notificationRepository.streamAllForExport()).thenReturn(LongStream.rangeClosed(1, 1200).mapToObj(id ->
+                new NotificationExportResponse(id, "Notification " + id, LocalDateTime.of(2023, 6, 1, 12, 0),
+                        NotificationStatus.UNREAD, 7L)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportNotifications(out, true);
+
+        String[] lines;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        }
+        assertEquals(1200, count);
+        assertEquals(1200, lines.length);
+        assertEquals("{\"id\":1200,\"content\":\"Notification 1200\",\"timeStamp\":\"2023-06-01 12:00\","
+                + "\"status\":\"UNREAD\",\"recipientId\":7}", lines[1199]);
+    }
+}
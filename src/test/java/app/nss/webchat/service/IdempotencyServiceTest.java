@@ -0,0 +1,161 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class IdempotencyServiceTest {
+
+    private MessageService messageService;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger sent;
+    private AtomicInteger published;
+
+    @BeforeEach
+    public void setUp() {
+        messageService = mock(MessageService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(messageService, meterRegistry, 100, Duration.ofSeconds(5));
+        sent = new AtomicInteger();
+        published = new AtomicInteger();
+        when(messageService.getMessageFromPrimary(anyLong())).thenAnswer(invocation -> message(invocation.getArgument(0)));
+    }
+
+    // Test sendOnce method - a retry with the same key returns the first message without sending again
+    @Test
+    public void testSendOnce_Replay() {
+        IdempotencyService.Result first = idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+        IdempotencyService.Result retry = idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.message().getId(), retry.message().getId());
+        assertEquals(1, sent.get());
+        assertEquals(1, published.get());
+        assertEquals(1, meterRegistry.get("message.idempotency.replayed").counter().count());
+    }
+
+    // Test sendOnce method - messages without a key or from another sender are always sent
+    @Test
+    public void testSendOnce_NotReplayed() {
+        idempotencyService.sendOnce(1L, null, this::send, this::publish);
+        idempotencyService.sendOnce(1L, null, this::send, this::publish);
+        idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+        idempotencyService.sendOnce(2L, "key-1", this::send, this::publish);
+
+        assertEquals(4, sent.get());
+        assertEquals(4, published.get());
+        verify(messageService, never()).getMessageFromPrimary(anyLong());
+    }
+
+    // Test sendOnce method - a failed send does not keep the key, so the retry sends
+    @Test
+    public void testSendOnce_RetryAfterFailure() {
+        assertThrows(ApplicationException.class, () -> idempotencyService.sendOnce(1L, "key-1", () -> {
+            throw new ApplicationException(HttpStatus.NOT_FOUND, "Room with id 1 not found.");
+        }, this::publish));
+
+        IdempotencyService.Result retry = idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+
+        assertFalse(retry.replayed());
+        assertEquals(1, sent.get());
+    }
+
+    // Test sendOnce method - a failed publish keeps the key, so the retry publishes the saved message once
+    @Test
+    public void testSendOnce_RetryAfterPublishFailure() {
+        assertThrows(ApplicationException.class, () -> idempotencyService.sendOnce(1L, "key-1", this::send, message -> {
+            throw new ApplicationException(HttpStatus.SERVICE_UNAVAILABLE, "Message events are unavailable.");
+        }));
+
+        IdempotencyService.Result retry = idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+        IdempotencyService.Result again = idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+
+        assertTrue(retry.replayed());
+        assertEquals(1L, retry.message().getId());
+        assertTrue(again.replayed());
+        assertEquals(1, sent.get());
+        assertEquals(1, published.get());
+    }
+
+    // Test sendOnce method - a retry that arrives during the first attempt waits for its message
+    @Test
+    public void testSendOnce_ConcurrentRetry() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<IdempotencyService.Result> first = CompletableFuture.supplyAsync(() ->
+                idempotencyService.sendOnce(1L, "key-1", () -> {
+                    sending.countDown();
+                    await(release);
+                    return send();
+                }, this::publish));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<IdempotencyService.Result> retry = CompletableFuture.supplyAsync(() ->
+                idempotencyService.sendOnce(1L, "key-1", this::send, this::publish));
+        release.countDown();
+
+        assertTrue(retry.get(5, TimeUnit.SECONDS).replayed());
+        assertEquals(first.get(5, TimeUnit.SECONDS).message().getId(), retry.get().message().getId());
+        assertEquals(1, sent.get());
+        assertEquals(1, published.get());
+    }
+
+    // Test rotate method - keys are forgotten after two windows
+    @Test
+    public void testRotate_ForgetsOldKeys() {
+        idempotencyService.sendOnce(1L, "key-1", this::send, this::publish);
+        idempotencyService.rotate();
+        assertTrue(idempotencyService.sendOnce(1L, "key-1", this::send, this::publish).replayed());
+
+        idempotencyService.rotate();
+
+        assertFalse(idempotencyService.sendOnce(1L, "key-1", this::send, this::publish).replayed());
+        assertEquals(2, sent.get());
+    }
+
+    // Test sendOnce method - overly long keys are rejected
+    @Test
+    public void testSendOnce_KeyTooLong() {
+        ApplicationException exception = assertThrows(ApplicationException.class,
+                () -> idempotencyService.sendOnce(1L, "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1), this::send, this::publish));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        assertEquals(0, sent.get());
+    }
+
+    private Message send() {
+        return message((long) sent.incrementAndGet());
+    }
+
+    private void publish(Message message) {
+        published.incrementAndGet();
+    }
+
+    private static Message message(Long id) {
+        Message message = new Message();
+        message.setId(id);
+        return message;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.config.FlywayLockCustomizer;
+import app.nss.webchat.dto.response.ImportResponse;
+import app.nss.webchat.exception.ApplicationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// The COPY path of ImportService, against Postgres with the schema from db/migration
+public class ImportServicePostgresTest {
+
+    private static EmbeddedPostgres postgres;
+    private final RoomTimelineService roomTimelineService = mock(RoomTimelineService.class);
+    private DataSource dataSource;
+    private ImportService importService;
+
+    @BeforeAll
+    public static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        Flyway.configure().dataSource(postgres.getPostgresDatabase())
+                .configuration(Map.of(FlywayLockCustomizer.TRANSACTIONAL_LOCK, "false")).load().migrate();
+    }
+
+    @AfterAll
+    public static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        dataSource = postgres.getPostgresDatabase();
+        execute("TRUNCATE message, participants, notification, read_watermark, import_checkpoint, chat_room, users");
+        execute("ALTER SEQUENCE message_seq RESTART WITH 1");
+        execute("ALTER SEQUENCE users_seq RESTART WITH 1");
+        execute("INSERT INTO users (id, username, email, password, role, user_status) "
+                + "VALUES (1, 'alice', 'a@chat.cz', 'x', 'USER', 'OFFLINE')");
+        execute("INSERT INTO chat_room (id, name, description) VALUES (1, 'room', 'First room')");
+        importService = new ImportService(dataSource, new ConcurrentMapCacheManager(), roomTimelineService,
+                new ObjectMapper(), 2);
+    }
+
+    // Test importRows method - messages are copied in chunks, separators, quotes, newlines and backslashes are kept
+    @Test
+    public void testImportRows_Copy() throws SQLException {
+        String input = """
+                {"id":100,"content":"Hello, \\"everyone\\"","timeStamp":"2023-06-01 12:00","senderId":1,"roomId":1}
+                {"id":101,"content":"Two\\nlines","timeStamp":"2023-06-01T12:05:30","senderId":1,"roomId":1}
+                {"id":102,"content":"C:\\\\chat","timeStamp":"2023-06-01 12:10","senderId":1,"roomId":1}
+                """;
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.MESSAGES,
+                ImportService.Format.NDJSON, stream(input), 0);
+
+        assertEquals(3, response.imported());
+        assertEquals(1, count("SELECT COUNT(*) FROM message WHERE id = 100 AND content = 'Hello, \"everyone\"'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM message WHERE id = 101 AND content = 'Two' || CHR(10) || 'lines'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM message WHERE id = 102 AND content = 'C:\\chat'"));
+        assertEquals(3, count("SELECT rows_imported FROM import_checkpoint WHERE id = 'legacy:messages'"));
+        assertTrue(count("SELECT nextval('message_seq')") - 50 >= 102);
+        verify(roomTimelineService).invalidateCluster();
+    }
+
+    // Test importRows method - missing optional columns are copied as NULL, missing choices take their defaults
+    @Test
+    public void testImportRows_CopyCsv() throws SQLException {
+        String input = "id,username,email,password\r\n"
+                + "7,bob,b@chat.cz,\"$2a$10$hash, with \"\"quotes\"\"\"\r\n";
+
+        importService.importRows("legacy", ImportService.Table.USERS, ImportService.Format.CSV, stream(input), 1000);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM users WHERE id = 1007 AND avatar IS NULL AND role = 'USER' "
+                + "AND user_status = 'OFFLINE' AND password = '$2a$10$hash, with \"quotes\"'"));
+    }
+
+    // Test importRows method - an invalid row cancels its COPY, sending the input again resumes after the last chunk
+    @Test
+    public void testImportRows_CopyResume() throws SQLException {
+        String broken = rows(1, 2, 3) + "{\"id\":4,\"content\":\"Broken\",\"timeStamp\":\"yesterday\",\"senderId\":1,\"roomId\":1}\n";
+
+        ApplicationException exception = assertThrows(ApplicationException.class, () -> importService.importRows(
+                "legacy", ImportService.Table.MESSAGES, ImportService.Format.NDJSON, stream(broken), 0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        assertEquals(2, count("SELECT COUNT(*) FROM message"));
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.MESSAGES,
+                ImportService.Format.NDJSON, stream(rows(1, 2, 3, 4, 5)), 0);
+
+        assertEquals(2, response.resumedAt());
+        assertEquals(3, response.imported());
+        assertEquals(5, count("SELECT COUNT(*) FROM message"));
+    }
+
+    // Test importRows method - a chunk that breaks a constraint is rolled back as a whole
+    @Test
+    public void testImportRows_CopyRejected() throws SQLException {
+        String input = rows(1) + "{\"id\":2,\"content\":\"Unknown sender\",\"timeStamp\":\"2023-06-01 12:00\",\"senderId\":9,\"roomId\":1}\n";
+
+        ApplicationException exception = assertThrows(ApplicationException.class, () -> importService.importRows(
+                "legacy", ImportService.Table.MESSAGES, ImportService.Format.NDJSON, stream(input), 0));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getHttpStatus());
+        assertTrue(exception.getMessage().startsWith("Rows 1-2 of messages were rejected"));
+        assertEquals(0, count("SELECT COUNT(*) FROM message"));
+        assertEquals(0, count("SELECT COUNT(*) FROM import_checkpoint"));
+    }
+
+    private static String rows(long... ids) {
+        StringBuilder rows = new StringBuilder();
+        for (long id : ids) {
+            rows.append("{\"id\":").append(id).append(",\"content\":\"Message ").append(id)
+                    .append("\",\"timeStamp\":\"2023-06-01 12:00\",\"senderId\":1,\"roomId\":1}\n");
+        }
+        return rows.toString();
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.ImportResponse;
+import app.nss.webchat.exception.ApplicationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ImportServiceTest {
+
+    private final RoomTimelineService roomTimelineService = mock(RoomTimelineService.class);
+    private final ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager("messagesCache");
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private ImportService importService;
+
+    @BeforeEach
+    public void setup() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:import;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        keepAlive = dataSource.getConnection();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL, "
+                    + "email VARCHAR(255) NOT NULL, password VARCHAR(255) NOT NULL, avatar VARCHAR(255), "
+                    + "role VARCHAR(255), user_status VARCHAR(255))");
+            statement.execute("CREATE TABLE chat_room (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "description VARCHAR(255) NOT NULL)");
+            statement.execute("CREATE TABLE message (id BIGINT PRIMARY KEY, content VARCHAR(255) NOT NULL, "
+                    + "time_stamp TIMESTAMP NOT NULL, sender BIGINT NOT NULL REFERENCES users, "
+                    + "room BIGINT NOT NULL REFERENCES chat_room)");
+            statement.execute("CREATE TABLE import_checkpoint (id VARCHAR(255) PRIMARY KEY, "
+                    + "rows_imported BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL)");
+            statement.execute("CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50");
+            statement.execute("CREATE SEQUENCE message_seq START WITH 1 INCREMENT BY 50");
+            statement.execute("INSERT INTO users (id, username, email, password) VALUES (1, 'alice', 'a@chat.cz', 'x')");
+            statement.execute("INSERT INTO chat_room (id, name, description) VALUES (1, 'room', 'First room')");
+        }
+        importService = new ImportService(dataSource, cacheManager, roomTimelineService, new ObjectMapper(), 2);
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        keepAlive.close();
+    }
+
+    // Test importRows method - NDJSON messages are loaded in chunks, the sequence moves past them
+    @Test
+    public void testImportRows_Ndjson() throws SQLException {
+        cacheManager.getCache("messagesCache").put("key", "value");
+        String input = """
+                {"id":100,"content":"Hello everyone","timeStamp":"2023-06-01 12:00","senderId":1,"roomId":1}
+                {"id":101,"content":"Second message","timeStamp":"2023-06-01T12:05:30","senderId":1,"roomId":1}
+
+                {"id":102,"content":"Third message","timeStamp":"2023-06-01 12:10","senderId":1,"roomId":1}
+                """;
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.MESSAGES,
+                ImportService.Format.NDJSON, stream(input), 0);
+
+        assertEquals(3, response.imported());
+        assertEquals(3, count("SELECT COUNT(*) FROM message"));
+        assertEquals(3, count("SELECT rows_imported FROM import_checkpoint WHERE id = 'legacy:messages'"));
+        assertTrue(count("SELECT nextval('message_seq')") - 50 >= 102);
+        assertNull(cacheManager.getCache("messagesCache").get("key"));
+        verify(roomTimelineService).invalidateCluster();
+    }
+
+    // Test importRows method - CSV with quoted fields, missing columns take their defaults
+    @Test
+    public void testImportRows_Csv() throws SQLException {
+        String input = "id,username,email,password\r\n"
+                + "7,bob,b@chat.cz,\"$2a$10$hash, with \"\"quotes\"\"\"\r\n"
+                + "8,carol,c@chat.cz,\"multi\nline\"\r\n";
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.USERS,
+                ImportService.Format.CSV, stream(input), 1000);
+
+        assertEquals(2, response.imported());
+        assertEquals(1, count("SELECT COUNT(*) FROM users WHERE id = 1007 AND role = 'USER' "
+                + "AND user_status = 'OFFLINE' AND password = '$2a$10$hash, with \"quotes\"'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM users WHERE id = 1008 AND password = 'multi' || CHAR(10) || 'line'"));
+    }
+
+    // Test importRows method - an invalid row rolls back its chunk, sending the input again resumes after the last chunk
+    @Test
+    public void testImportRows_Resume() throws SQLException {
+        String broken = rows(1, 2, 3) + "{\"id\":4,\"content\":\"Broken\",\"timeStamp\":\"yesterday\",\"senderId\":1,\"roomId\":1}\n"
+                + rows(5);
+
+        ApplicationException exception = assertThrows(ApplicationException.class, () -> importService.importRows(
+                "legacy", ImportService.Table.MESSAGES, ImportService.Format.NDJSON, stream(broken), 0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        assertTrue(exception.getMessage().startsWith("Row 4 of messages is invalid"));
+        assertEquals(2, count("SELECT COUNT(*) FROM message"));
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.MESSAGES,
+                ImportService.Format.NDJSON, stream(rows(1, 2, 3, 4, 5)), 0);
+
+        assertEquals(2, response.resumedAt());
+        assertEquals(3, response.imported());
+        assertEquals(5, count("SELECT COUNT(*) FROM message"));
+    }
+
+    // Test importRows method - ids the application may already have handed out are rejected before loading
+    @Test
+    public void testImportRows_ReservedIds() throws SQLException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("ALTER SEQUENCE message_seq RESTART WITH 101");
+        }
+
+        ApplicationException exception = assertThrows(ApplicationException.class, () -> importService.importRows(
+                "legacy", ImportService.Table.MESSAGES, ImportService.Format.NDJSON, stream(rows(52, 51)), 0));
+
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        assertTrue(exception.getMessage().startsWith("Row 2 of messages is invalid: id 51 is not above 51"));
+        assertEquals(0, count("SELECT COUNT(*) FROM message"));
+
+        ImportResponse response = importService.importRows("legacy", ImportService.Table.MESSAGES,
+                ImportService.Format.NDJSON, stream(rows(102, 103)), 0);
+
+        assertEquals(2, response.imported());
+        assertEquals(2, count("SELECT COUNT(*) FROM message"));
+    }
+
+    // Test importRows method - rows the database rejects are reported with their chunk
+    @Test
+    public void testImportRows_Rejected() throws SQLException {
+        String input = rows(1) + "{\"id\":2,\"content\":\"Unknown sender\",\"timeStamp\":\"2023-06-01 12:00\",\"senderId\":9,\"roomId\":1}\n";
+
+        ApplicationException exception = assertThrows(ApplicationException.class, () -> importService.importRows(
+                "legacy", ImportService.Table.MESSAGES, ImportService.Format.NDJSON, stream(input), 0));
+
+        assertEquals(HttpStatus.CONFLICT, exception.getHttpStatus());
+        assertTrue(exception.getMessage().startsWith("Rows 1-2 of messages were rejected"));
+        assertEquals(0, count("SELECT COUNT(*) FROM message"));
+    }
+
+    private static String rows(long... ids) {
+        StringBuilder rows = new StringBuilder();
+        for (long id : ids) {
+            rows.append("{\"id\":").append(id).append(",\"content\":\"Message ").append(id)
+                    .append("\",\"timeStamp\":\"2023-06-01 12:00\",\"senderId\":1,\"roomId\":1}\n");
+        }
+        return rows.toString();
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement statement = keepAlive.createStatement(); ResultSet result = statement.executeQuery(sql)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -141,43 +141,6 @@ public class MessageServiceTest {
         assertEquals(mockMessages.get(1).getId(), messages.get(1).getId());
     }
 
-    @Test
-    public void testGetSortedMessagesForChat() {
-        Long chatId = 1L;
-
-        // Mocking the behavior of messageRepository.findAllForChatWithIdOrderByTimeStampAsc()
-        List<Message> mockMessages = getMessageList(chatId);
-        when(messageRepository.findAllForChatWithIdOrderByTimeStampAsc(chatId)).thenReturn(mockMessages);
-
-        List<Message> messages = messageService.getSortedMessagesForChat(chatId);
-
-        // Assertions
-        assertEquals(mockMessages.size(), messages.size());
-        assertEquals(mockMessages.get(0).getContent(), messages.get(0).getContent());
-        assertEquals(mockMessages.get(1).getId(), messages.get(1).getId());
-    }
-
-    private static List<Message> getMessageList(Long chatId) {
-        List<Message> mockMessages = new ArrayList<>();
-        ChatRoom room = new ChatRoom();
-        Message message1 = new Message();
-        Message message2 = new Message();
-
-        room.setId(chatId);
-
-        message1.setId(1L);
-        message1.setContent("Hello");
-        message1.setRoom(room);
-
-        message2.setId(2L);
-        message2.setContent("Hi");
-        message2.setRoom(room);
-
-        mockMessages.add(message1);
-        mockMessages.add(message2);
-        return mockMessages;
-    }
-
     @Test
     public void testSendMessage() {
         String content = "Hello";
@@ -0,0 +1,75 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHashingServiceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService hashingService;
+
+    @AfterEach
+    public void tearDown() {
+        hashingService.shutdown();
+    }
+
+    // Test encode and matches methods
+    @Test
+    public void testEncodeAndMatches() {
+        hashingService = new PasswordHashingService(meterRegistry, 1, 4, Duration.ofSeconds(5));
+
+        String encoded = hashingService.encode("password123");
+
+        assertNotEquals("password123", encoded);
+        assertTrue(hashingService.matches("password123", encoded));
+        assertFalse(hashingService.matches("wrongPassword", encoded));
+        assertEquals(2, meterRegistry.get("auth.hashing.duration").tag("operation", "matches").timer().count());
+    }
+
+    // Test encode method - saturated executor rejects with 503
+    @Test
+    public void testEncode_Saturated() throws Exception {
+        hashingService = new PasswordHashingService(meterRegistry, 1, 1, Duration.ofSeconds(30));
+        int callers = 8;
+        ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < callers; i++) {
+            futures.add(callerPool.submit(() -> {
+                start.await();
+                try {
+                    hashingService.encode("password123");
+                } catch (ApplicationException e) {
+                    assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getHttpStatus());
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callerPool.shutdown();
+
+        assertTrue(rejected.get() > 0);
+        assertEquals(rejected.get(), (int) meterRegistry.get("auth.hashing.rejected").counter().count());
+    }
+}
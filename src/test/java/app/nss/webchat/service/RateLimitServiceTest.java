@@ -0,0 +1,148 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.Role;
+import app.nss.webchat.exception.RateLimitException;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitServiceTest {
+
+    private static final Authentication ALICE = user("alice", Role.USER);
+    private static final Authentication BOB = user("bob", Role.USER);
+    private static final Authentication ADMIN = user("admin", Role.ADMIN);
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        rateLimitService = service(null, true);
+    }
+
+    // Test acquireMessage method - a burst is allowed, the next message waits for one interval
+    @Test
+    public void testAcquireMessage_Burst() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.acquireMessage(ALICE, 1L);
+        }
+
+        RateLimitException exception = assertThrows(RateLimitException.class,
+                () -> rateLimitService.acquireMessage(ALICE, 1L));
+        assertEquals(Duration.ofMillis(100), exception.getRetryAfter());
+        assertEquals(1, meterRegistry.get("ratelimit.rejected").tag("bucket", "user").counter().count());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        rateLimitService.acquireMessage(ALICE, 1L);
+    }
+
+    // Test acquireMessage method - users have their own buckets, admins a larger one
+    @Test
+    public void testAcquireMessage_PerUser() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.acquireMessage(ALICE, 1L);
+        }
+
+        rateLimitService.acquireMessage(BOB, 2L);
+        for (int i = 0; i < 5; i++) {
+            rateLimitService.acquireMessage(ADMIN, 3L);
+        }
+        assertThrows(RateLimitException.class, () -> rateLimitService.acquireMessage(ALICE, 1L));
+    }
+
+    // Test acquireMessage method - a full room rejects everyone and does not use up the sender's bucket
+    @Test
+    public void testAcquireMessage_RoomLimit() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.acquireMessage(ALICE, 1L);
+        }
+        for (int i = 0; i < 2; i++) {
+            rateLimitService.acquireMessage(BOB, 1L);
+        }
+
+        assertThrows(RateLimitException.class, () -> rateLimitService.acquireMessage(BOB, 1L));
+        assertEquals(1, meterRegistry.get("ratelimit.rejected").tag("bucket", "room").counter().count());
+        rateLimitService.acquireMessage(BOB, 2L);
+    }
+
+    // Test acquireMessage method - nothing is limited when disabled
+    @Test
+    public void testAcquireMessage_Disabled() {
+        RateLimitService disabled = service(null, false);
+
+        for (int i = 0; i < 100; i++) {
+            disabled.acquireMessage(ALICE, 1L);
+        }
+    }
+
+    // Test removeFullBuckets method - refilled buckets are dropped, the others are kept
+    @Test
+    public void testRemoveFullBuckets() {
+        rateLimitService.acquireMessage(ALICE, 1L);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        rateLimitService.acquireMessage(BOB, 2L);
+
+        rateLimitService.removeFullBuckets();
+
+        assertEquals(2, meterRegistry.get("ratelimit.buckets").gauge().value());
+    }
+
+    // Test acquireMessage method - in cluster mode every node uses the same buckets
+    @Test
+    public void testAcquireMessage_Cluster() {
+        Config config = new Config();
+        config.setClusterName("rate-limit-test");
+        config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+        config.getJetConfig().setEnabled(false);
+        HazelcastInstance hazelcast = Hazelcast.newHazelcastInstance(config);
+        try {
+            IMap<String, Long> buckets = hazelcast.getMap(RateLimitService.MAP_NAME);
+            // Slow enough that the wall clock the cluster uses does not refill the bucket during the test
+            Map<Role, RateLimitService.Limit> limits = Map.of(Role.USER, RateLimitService.Limit.of(0.1, 3));
+            RateLimitService first = new RateLimitService(meterRegistry, true, limits,
+                    RateLimitService.Limit.of(0.1, 10), buckets, clock::get);
+            RateLimitService second = new RateLimitService(meterRegistry, true, limits,
+                    RateLimitService.Limit.of(0.1, 10), buckets, clock::get);
+
+            first.acquireMessage(ALICE, 1L);
+            second.acquireMessage(ALICE, 1L);
+            first.acquireMessage(ALICE, 1L);
+
+            RateLimitException exception = assertThrows(RateLimitException.class,
+                    () -> second.acquireMessage(ALICE, 1L));
+            assertTrue(exception.getRetryAfter().compareTo(Duration.ofSeconds(10)) <= 0);
+            assertNotNull(buckets.get("user:alice"));
+        } finally {
+            hazelcast.shutdown();
+        }
+    }
+
+    // Users may send 3 messages at once and then 10 per second, admins 5 at once, rooms 5 at once
+    private RateLimitService service(IMap<String, Long> buckets, boolean enabled) {
+        return new RateLimitService(meterRegistry, enabled,
+                Map.of(Role.USER, RateLimitService.Limit.of(10, 3), Role.ADMIN, RateLimitService.Limit.of(100, 5)),
+                RateLimitService.Limit.of(10, 5), buckets, clock::get);
+    }
+
+    private static Authentication user(String name, Role role) {
+        return UsernamePasswordAuthenticationToken.authenticated(name, null,
+                List.of(new SimpleGrantedAuthority(role.toString())));
+    }
+}
@@ -0,0 +1,152 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.response.ReadWatermarkResponse;
+import app.nss.webchat.entity.ReadWatermark;
+import app.nss.webchat.exception.ApplicationException;
+import app.nss.webchat.repository.ReadWatermarkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ReadReceiptServiceTest {
+
+    private final ReadWatermarkRepository readWatermarkRepository = mock(ReadWatermarkRepository.class);
+    private final ChatRoomService chatRoomService = mock(ChatRoomService.class);
+    private final MessageService messageService = mock(MessageService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private ReadReceiptService readReceiptService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        readReceiptService = new ReadReceiptService(readWatermarkRepository, chatRoomService, messageService,
+                transactionManager, meterRegistry, 100, Duration.ofSeconds(30), clock::get);
+        when(chatRoomService.isParticipant(anyLong(), anyLong())).thenReturn(true);
+        when(messageService.containsMessageInRoom(anyLong(), anyLong())).thenReturn(true);
+    }
+
+    // Test markRead method - positions are coalesced per user and room and written once by the next flush
+    @Test
+    public void testMarkRead_CoalescedIntoOneWrite() {
+        readReceiptService.markRead(1L, 10L, 5L);
+        readReceiptService.markRead(1L, 10L, 7L);
+        readReceiptService.markRead(1L, 10L, 6L);
+        readReceiptService.markRead(1L, 11L, 3L);
+
+        readReceiptService.flush();
+        readReceiptService.flush();
+
+        verify(readWatermarkRepository).upsert(eq(10L), eq(1L), eq(7L), any(LocalDateTime.class));
+        verify(readWatermarkRepository).upsert(eq(11L), eq(1L), eq(3L), any(LocalDateTime.class));
+        verifyNoMoreInteractions(readWatermarkRepository);
+        assertEquals(2, meterRegistry.get("read-receipts.coalesced").counter().count());
+    }
+
+    // Test getWatermarks method - stored positions are loaded once and merged with those not yet flushed
+    @Test
+    public void testGetWatermarks_MergesPending() {
+        when(readWatermarkRepository.findAllByRoomId(1L)).thenReturn(List.of(
+                watermark(10L, 1L, 4L), watermark(11L, 1L, 9L)));
+        readReceiptService.markRead(1L, 10L, 6L);
+        readReceiptService.markRead(1L, 11L, 2L);
+
+        assertEquals(List.of(new ReadWatermarkResponse(1L, 10L, 6L), new ReadWatermarkResponse(1L, 11L, 9L)),
+                readReceiptService.getWatermarks(1L));
+        readReceiptService.markRead(1L, 12L, 8L);
+        assertEquals(List.of(new ReadWatermarkResponse(1L, 11L, 9L), new ReadWatermarkResponse(1L, 12L, 8L)),
+                readReceiptService.getReaders(1L, 7L));
+        verify(readWatermarkRepository, times(1)).findAllByRoomId(1L);
+    }
+
+    // Test getWatermarks method - a room is loaded in a read-write transaction, so the primary is read
+    @Test
+    public void testGetWatermarks_LoadsOnPrimary() {
+        readReceiptService.getWatermarks(1L);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertFalse(definition.getValue().isReadOnly());
+        verify(readWatermarkRepository).findAllByRoomId(1L);
+    }
+
+    // Test flush method - cached rooms are reloaded after the cache ttl
+    @Test
+    public void testFlush_ExpiresCachedRooms() {
+        when(readWatermarkRepository.findAllByRoomId(1L)).thenReturn(List.of(watermark(10L, 1L, 4L)));
+        readReceiptService.getWatermarks(1L);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(31));
+
+        readReceiptService.flush();
+        readReceiptService.getWatermarks(1L);
+
+        verify(readWatermarkRepository, times(2)).findAllByRoomId(1L);
+    }
+
+    // Test flush method - positions of deleted users or rooms are dropped, the rest is still written
+    @Test
+    public void testFlush_DropsDeleted() {
+        when(readWatermarkRepository.upsert(eq(10L), eq(1L), anyLong(), any(LocalDateTime.class)))
+                .thenThrow(new DataIntegrityViolationException("read_watermark_user_id_fkey"));
+        readReceiptService.markRead(1L, 10L, 5L);
+        readReceiptService.markRead(1L, 11L, 3L);
+
+        readReceiptService.flush();
+        readReceiptService.flush();
+
+        verify(readWatermarkRepository, times(2)).upsert(eq(10L), eq(1L), eq(5L), any(LocalDateTime.class));
+        verify(readWatermarkRepository, atLeastOnce()).upsert(eq(11L), eq(1L), eq(3L), any(LocalDateTime.class));
+        assertEquals(1, meterRegistry.get("read-receipts.flushed").counter().count());
+    }
+
+    // Test markRead method - users outside the room cannot move a watermark
+    @Test
+    public void testMarkRead_NotParticipant() {
+        when(chatRoomService.isParticipant(1L, 10L)).thenReturn(false);
+
+        assertThrows(ApplicationException.class, () -> readReceiptService.markRead(1L, 10L, 5L));
+
+        readReceiptService.flush();
+        verifyNoInteractions(readWatermarkRepository);
+    }
+
+    // Test markRead method - ids that are not in the room are rejected, positions behind the known one are not looked up
+    @Test
+    public void testMarkRead_MessageNotInRoom() {
+        when(messageService.containsMessageInRoom(1L, Long.MAX_VALUE)).thenReturn(false);
+
+        assertThrows(ApplicationException.class, () -> readReceiptService.markRead(1L, 10L, Long.MAX_VALUE));
+        readReceiptService.markRead(1L, 10L, 7L);
+        readReceiptService.markRead(1L, 10L, 5L);
+
+        verify(messageService).containsMessageInRoom(1L, 7L);
+        verify(messageService, never()).containsMessageInRoom(1L, 5L);
+        assertEquals(List.of(new ReadWatermarkResponse(1L, 10L, 7L)), readReceiptService.getWatermarks(1L));
+    }
+
+    private static ReadWatermark watermark(Long userId, Long roomId, Long messageId) {
+        ReadWatermark watermark = new ReadWatermark();
+        watermark.setUserId(userId);
+        watermark.setRoomId(roomId);
+        watermark.setLastReadMessageId(messageId);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        return watermark;
+    }
+}
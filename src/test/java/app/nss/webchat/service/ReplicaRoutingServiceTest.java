@@ -0,0 +1,127 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.config.FlywayLockCustomizer;
+import app.nss.webchat.config.ReplicaRoutingDataSource;
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.exception.ApplicationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Write paths against a routing data source whose replica is a second, empty database with the same schema. A read
+// that went to the replica would not find the rows written to the primary.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FlywayLockCustomizer.class, MessageService.class, PaginationService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ReplicaRoutingServiceTest {
+
+    private static final SimpleMeterRegistry METER_REGISTRY = new SimpleMeterRegistry();
+
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TestConfiguration
+    static class RoutingConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        // Not a standby, so the lag check reads no lag and the replica is used right away
+        @Bean
+        ReplicaRoutingDataSource routingDataSource(EmbeddedPostgres embeddedPostgres) {
+            new JdbcTemplate(embeddedPostgres.getPostgresDatabase()).execute("CREATE DATABASE replica");
+            DataSource replica = embeddedPostgres.getDatabase("postgres", "replica");
+            Flyway.configure().dataSource(replica)
+                    .configuration(Map.of(FlywayLockCustomizer.TRANSACTIONAL_LOCK, "false")).load().migrate();
+            ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(
+                    embeddedPostgres.getPostgresDatabase(), replica, Duration.ofSeconds(5), METER_REGISTRY);
+            routingDataSource.checkLag();
+            return routingDataSource;
+        }
+
+        @Bean
+        @Primary
+        DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+    }
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.execute("TRUNCATE message, chat_room, users CASCADE");
+        jdbcTemplate.update("INSERT INTO users (id, username, email, password, role, user_status) "
+                + "VALUES (1, 'alice', 'a@chat.cz', 'x', 'USER', 'OFFLINE')");
+        jdbcTemplate.update("INSERT INTO chat_room (id, name, description) VALUES (1, 'room', 'First room')");
+    }
+
+    // Test sendMessage method - the room and the sender are read on the primary
+    @Test
+    public void testSendMessage_ReadsOnPrimary() {
+        double replicaReads = replicaConnections();
+
+        Message message = messageService.sendMessage("Hello", 1L, 1L);
+
+        assertEquals("Hello", message.getContent());
+        assertEquals(replicaReads, replicaConnections());
+    }
+
+    // Test updateMessage method - the message is read on the primary
+    @Test
+    public void testUpdateMessage_ReadsOnPrimary() {
+        insertMessage();
+        double replicaReads = replicaConnections();
+
+        Message message = messageService.updateMessage(1L, 1L, "Edited");
+
+        assertEquals("Edited", message.getContent());
+        assertEquals(replicaReads, replicaConnections());
+    }
+
+    // Test getMessageById method - plain reads still go to the replica, which does not have the message
+    @Test
+    public void testGetMessageById_ReadsOnReplica() {
+        insertMessage();
+        double replicaReads = replicaConnections();
+
+        ApplicationException exception = assertThrows(ApplicationException.class,
+                () -> messageService.getMessageById(1L));
+
+        assertEquals(HttpStatus.NOT_FOUND, exception.getHttpStatus());
+        assertEquals(replicaReads + 1, replicaConnections());
+    }
+
+    private void insertMessage() {
+        jdbcTemplate.update("INSERT INTO message (id, content, time_stamp, sender, room) "
+                + "VALUES (1, 'Hello', now(), 1, 1)");
+    }
+
+    private static double replicaConnections() {
+        return METER_REGISTRY.get("datasource.routing.connections").tag("target", "replica").counter().count();
+    }
+}
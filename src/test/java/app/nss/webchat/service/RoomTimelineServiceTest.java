@@ -0,0 +1,142 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.event.MessageEvent;
+import app.nss.webchat.dto.response.TimelineMessageResponse;
+import app.nss.webchat.entity.ChatRoom;
+import app.nss.webchat.entity.Message;
+import app.nss.webchat.entity.User;
+import app.nss.webchat.repository.MessageRepository;
+import app.nss.webchat.repository.UserRepository;
+import com.hazelcast.topic.ITopic;
+import com.hazelcast.topic.MessageListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RoomTimelineServiceTest {
+
+    private final MessageRepository messageRepository = mock(MessageRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    @SuppressWarnings("unchecked")
+    private final ITopic<Long> invalidations = mock(ITopic.class);
+    private RoomTimelineService roomTimelineService;
+    private User sender;
+
+    @BeforeEach
+    public void setup() {
+        roomTimelineService = new RoomTimelineService(messageRepository, userRepository, transactionManager, 2,
+                Duration.ofMinutes(5), invalidations);
+        roomTimelineService.setLive(true);
+        sender = new User();
+        sender.setId(7L);
+        sender.setUsername("alice");
+        sender.setAvatar("alice.png");
+        ChatRoom room = new ChatRoom();
+        room.setId(1L);
+        Message message = new Message();
+        message.setId(10L);
+        message.setContent("Hello everyone");
+        message.setTimeStamp(LocalDateTime.of(2023, 6, 1, 12, 0));
+        message.setSender(sender);
+        message.setRoom(room);
+        when(messageRepository.findTimelineForChat(1L)).thenReturn(List.of(message));
+        when(userRepository.findById(7L)).thenReturn(Optional.of(sender));
+    }
+
+    // Test getTimeline method - loaded once, then served from memory with sender details
+    @Test
+    public void testGetTimeline() {
+        List<TimelineMessageResponse> first = roomTimelineService.getTimeline(1L);
+        List<TimelineMessageResponse> second = roomTimelineService.getTimeline(1L);
+
+        assertEquals(first, second);
+        assertEquals(1, first.size());
+        assertEquals("alice", first.get(0).senderUsername());
+        assertEquals("alice.png", first.get(0).senderAvatar());
+        verify(messageRepository, times(1)).findTimelineForChat(1L);
+        verify(userRepository, never()).findById(any());
+    }
+
+    // Test getTimeline method - loaded in a read-write transaction, so the primary is read
+    @Test
+    public void testGetTimeline_LoadsOnPrimary() {
+        roomTimelineService.getTimeline(1L);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertFalse(definition.getValue().isReadOnly());
+        verify(transactionManager).commit(any());
+    }
+
+    // Test apply method - create, update and delete events change a loaded timeline
+    @Test
+    public void testApply() {
+        roomTimelineService.getTimeline(1L);
+
+        roomTimelineService.apply(new MessageEvent(MessageEvent.Type.CREATED, 11L, 1L, 7L,
+                System.currentTimeMillis(), "Second message"));
+        roomTimelineService.apply(new MessageEvent(MessageEvent.Type.UPDATED, 10L, 1L, 7L, 0L, "Edited message"));
+        List<TimelineMessageResponse> timeline = roomTimelineService.getTimeline(1L);
+
+        assertEquals(List.of(10L, 11L), timeline.stream().map(TimelineMessageResponse::id).toList());
+        assertEquals("Edited message", timeline.get(0).content());
+
+        roomTimelineService.apply(new MessageEvent(MessageEvent.Type.DELETED, 10L, 1L, 7L, 0L, null));
+
+        assertEquals(List.of(11L), roomTimelineService.getTimeline(1L).stream().map(TimelineMessageResponse::id).toList());
+        verify(messageRepository, times(1)).findTimelineForChat(1L);
+    }
+
+    // Test getTimeline method - not live yet, every read goes to the database
+    @Test
+    public void testGetTimeline_NotLive() {
+        roomTimelineService.setLive(false);
+
+        roomTimelineService.getTimeline(1L);
+        roomTimelineService.apply(new MessageEvent(MessageEvent.Type.DELETED, 10L, 1L, 7L, 0L, null));
+
+        assertEquals(1, roomTimelineService.getTimeline(1L).size());
+        verify(messageRepository, times(2)).findTimelineForChat(1L);
+    }
+
+    // Test getTimeline method - least recently read rooms are evicted
+    @Test
+    public void testGetTimeline_Eviction() {
+        roomTimelineService.getTimeline(1L);
+        roomTimelineService.getTimeline(2L);
+        roomTimelineService.getTimeline(3L);
+        roomTimelineService.getTimeline(1L);
+
+        verify(messageRepository, times(2)).findTimelineForChat(1L);
+    }
+
+    // Test invalidateCluster method - the other nodes are told, and an announcement drops the local copy
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvalidateCluster() {
+        ArgumentCaptor<MessageListener<Long>> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(invalidations).addMessageListener(listener.capture());
+        roomTimelineService.getTimeline(1L);
+
+        roomTimelineService.invalidateCluster(1L);
+        roomTimelineService.getTimeline(1L);
+        com.hazelcast.topic.Message<Long> announcement = mock(com.hazelcast.topic.Message.class);
+        when(announcement.getMessageObject()).thenReturn(0L);
+        listener.getValue().onMessage(announcement);
+        roomTimelineService.getTimeline(1L);
+
+        verify(invalidations).publish(1L);
+        verify(messageRepository, times(3)).findTimelineForChat(1L);
+    }
+}
@@ -0,0 +1,101 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.entity.Role;
+import app.nss.webchat.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenServiceTest {
+
+    private static final String SECRET = "test-secret-which-is-long-enough-for-hmac";
+
+    private TokenService tokenService;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        tokenService = new TokenService(SECRET, Duration.ofMinutes(5));
+        user = new User(Role.ADMIN);
+        user.setUsername("user|with|pipes");
+    }
+
+    // Test verifyToken method - freshly issued token
+    @Test
+    public void testVerifyToken_ValidToken() {
+        String token = tokenService.issueToken(user);
+
+        TokenService.TokenClaims claims = tokenService.verifyToken(token);
+
+        assertNotNull(claims);
+        assertEquals(user.getUsername(), claims.username());
+        assertEquals(Role.ADMIN.toString(), claims.role());
+    }
+
+    // Test verifyToken method - tampered payload
+    @Test
+    public void testVerifyToken_TamperedToken() {
+        String token = tokenService.issueToken(user);
+        String tampered = "x" + token.substring(1);
+
+        assertNull(tokenService.verifyToken(tampered));
+        assertNull(tokenService.verifyToken("not-a-token"));
+        assertNull(tokenService.verifyToken(null));
+    }
+
+    // Test verifyToken method - token signed with another secret
+    @Test
+    public void testVerifyToken_ForeignSecret() {
+        TokenService other = new TokenService(SECRET + "-other", Duration.ofMinutes(5));
+
+        assertNull(tokenService.verifyToken(other.issueToken(user)));
+    }
+
+    // Test verifyToken method - expired token
+    @Test
+    public void testVerifyToken_ExpiredToken() {
+        TokenService expiring = new TokenService(SECRET, Duration.ZERO);
+
+        assertNull(expiring.verifyToken(expiring.issueToken(user)));
+    }
+
+    // Test revokeToken method
+    @Test
+    public void testRevokeToken() {
+        String revoked = tokenService.issueToken(user);
+        String active = tokenService.issueToken(user);
+
+        tokenService.revokeToken(revoked);
+
+        assertNull(tokenService.verifyToken(revoked));
+        assertNotNull(tokenService.verifyToken(active));
+    }
+
+    // Test revokeAllTokens method
+    @Test
+    public void testRevokeAllTokens() throws InterruptedException {
+        String token = tokenService.issueToken(user);
+
+        tokenService.revokeAllTokens(user.getUsername());
+        Thread.sleep(2);
+
+        assertNull(tokenService.verifyToken(token));
+        assertNotNull(tokenService.verifyToken(tokenService.issueToken(user)));
+    }
+
+    // Test constructor - short secret
+    @Test
+    public void testShortSecret() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("short", Duration.ofMinutes(5)));
+    }
+
+    // Test constructor - missing secret
+    @Test
+    public void testMissingSecret() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("", Duration.ofMinutes(5)));
+        assertThrows(IllegalStateException.class, () -> new TokenService(null, Duration.ofMinutes(5)));
+    }
+}
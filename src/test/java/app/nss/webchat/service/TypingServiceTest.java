@@ -0,0 +1,126 @@
+package app.nss.webchat.service;
+
+import app.nss.webchat.dto.event.TypingEvent;
+import app.nss.webchat.exception.ApplicationException;
+import com.hazelcast.topic.ITopic;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TypingServiceTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private TypingService typingService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        typingService = new TypingService(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofMinutes(1), 16, 2, clock::get, null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        typingService.shutdown();
+    }
+
+    // Test signal method - repeated signals within the coalescing window only renew the indicator
+    @Test
+    public void testSignal_Coalesced() {
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+        advance(300);
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+        typingService.signal(1L, "bob", TypingEvent.Activity.TYPING);
+        typingService.signal(1L, "alice", TypingEvent.Activity.ACTIVE);
+        advance(1000);
+        typingService.signal(1L, "bob", TypingEvent.Activity.TYPING);
+
+        assertEquals(1, meterRegistry.get("typing.coalesced").counter().count());
+        assertEquals(List.of("alice", "bob"), usernames(typingService.getTyping(1L)));
+    }
+
+    // Test expire method - indicators that are not renewed expire, renewed ones stay
+    @Test
+    public void testExpire() {
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+        typingService.signal(1L, "bob", TypingEvent.Activity.TYPING);
+        advance(4000);
+        typingService.signal(1L, "bob", TypingEvent.Activity.TYPING);
+        advance(1000);
+
+        typingService.expire();
+
+        assertEquals(List.of("bob"), usernames(typingService.getTyping(1L)));
+        advance(5000);
+        typingService.expire();
+        assertTrue(typingService.getTyping(1L).isEmpty());
+    }
+
+    // Test signal method - STOPPED removes the indicator right away
+    @Test
+    public void testSignal_Stopped() {
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+
+        typingService.signal(1L, "alice", TypingEvent.Activity.STOPPED);
+
+        assertTrue(typingService.getTyping(1L).isEmpty());
+        assertTrue(typingService.getTyping(2L).isEmpty());
+    }
+
+    // Test subscribe method - each user may only keep a limited number of streams open
+    @Test
+    public void testSubscribe_LimitedPerUser() {
+        typingService.subscribe(1L, "alice");
+        typingService.subscribe(2L, "alice");
+
+        ApplicationException exception = assertThrows(ApplicationException.class,
+                () -> typingService.subscribe(1L, "alice"));
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getHttpStatus());
+        assertNotNull(typingService.subscribe(1L, "bob"));
+        assertEquals(3, meterRegistry.get("typing.subscribers").gauge().value());
+    }
+
+    // Test signal and expire methods - events that are not coalesced away go to every node through the topic
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSignal_RelayedToCluster() {
+        ITopic<TypingEvent> events = mock(ITopic.class);
+        typingService.shutdown();
+        typingService = new TypingService(meterRegistry, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofMinutes(1), 16, 2, clock::get, events);
+        verify(events).addMessageListener(any());
+
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+        typingService.signal(1L, "alice", TypingEvent.Activity.TYPING);
+        advance(5000);
+        typingService.expire();
+
+        ArgumentCaptor<TypingEvent> relayed = ArgumentCaptor.forClass(TypingEvent.class);
+        verify(events, times(2)).publish(relayed.capture());
+        assertEquals(List.of(TypingEvent.Activity.TYPING, TypingEvent.Activity.STOPPED),
+                relayed.getAllValues().stream().map(TypingEvent::activity).toList());
+        assertTrue(relayed.getAllValues().stream().allMatch(event -> event.roomId() == 1L
+                && event.username().equals("alice")));
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static List<String> usernames(List<TypingEvent> events) {
+        return events.stream().map(TypingEvent::username).sorted().toList();
+    }
+}